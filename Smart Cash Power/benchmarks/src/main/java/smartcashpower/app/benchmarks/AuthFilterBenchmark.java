@@ -0,0 +1,82 @@
+package smartcashpower.app.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import smartcashpower.app.config.AuthenticatedUser;
+import smartcashpower.app.config.JwtAuthFilter;
+import smartcashpower.app.config.JwtTokenService;
+import smartcashpower.app.config.TokenRevocationList;
+import smartcashpower.app.service.CustomUserDetailsService;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request in {@link JwtAuthFilter}. The filter verifies the signed token
+ * and builds the principal from its claims; {@link #verifyThenLoadCachedPrincipal} is the previous
+ * approach, which looked the principal up by id on every request (here against a warm cache, its
+ * best case).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    private JwtTokenService jwtTokenService;
+    private JwtAuthFilter filter;
+    private CustomUserDetailsService userDetailsService;
+    private String token;
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setUp() {
+        jwtTokenService = new JwtTokenService(Fixtures.JWT_SECRET, 900, 604800,
+                Fixtures.objectMapper(), new TokenRevocationList(604800));
+        filter = new JwtAuthFilter(jwtTokenService, new SimpleMeterRegistry());
+
+        userDetailsService = new CustomUserDetailsService(10_000, 300, new SimpleMeterRegistry());
+        Fixtures.inject(userDetailsService, "userRepository", Fixtures.userRepository(Fixtures.user()));
+        userDetailsService.loadUserById(42L);
+
+        token = jwtTokenService.issueAccessToken(AuthenticatedUser.from(Fixtures.user()));
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public MockHttpServletRequest filterWithToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/meters");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return request;
+    }
+
+    @Benchmark
+    public MockHttpServletRequest filterWithoutToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/meters");
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return request;
+    }
+
+    @Benchmark
+    public Optional<AuthenticatedUser> verifyToken() {
+        return jwtTokenService.verify(token, JwtTokenService.ACCESS);
+    }
+
+    @Benchmark
+    public void verifyThenLoadCachedPrincipal(Blackhole blackhole) {
+        Optional<AuthenticatedUser> claims = jwtTokenService.verify(token, JwtTokenService.ACCESS);
+        blackhole.consume(userDetailsService.loadUserById(claims.orElseThrow().getId()));
+    }
+}
@@ -0,0 +1,69 @@
+package smartcashpower.app.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files (written with {@code -rf json -rff <file>}) and prints the
+ * change of every benchmark present in both. Exits with status 1 when any benchmark got slower by
+ * more than the threshold (default 10%), so it can gate a build.
+ * <pre>
+ * java -cp target/benchmarks.jar smartcashpower.app.benchmarks.CompareResults base.json head.json [thresholdPercent]
+ * </pre>
+ * All benchmarks here report average time, so a higher score is a regression.
+ */
+public final class CompareResults {
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareResults <base.json> <head.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> base = read(new File(args[0]));
+        Map<String, JsonNode> head = read(new File(args[1]));
+
+        boolean regressed = false;
+        System.out.printf("%-75s %14s %14s %9s%n", "Benchmark", "Base", "Head", "Change");
+        for (Map.Entry<String, JsonNode> entry : head.entrySet()) {
+            JsonNode before = base.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double headScore = entry.getValue().path("primaryMetric").path("score").asDouble();
+            String unit = entry.getValue().path("primaryMetric").path("scoreUnit").asText();
+            double change = (headScore - baseScore) / baseScore * 100;
+            boolean slower = change > threshold;
+            regressed |= slower;
+            System.out.printf("%-75s %10.3f %-3s %10.3f %-3s %+8.1f%%%s%n", entry.getKey(),
+                    baseScore, unit, headScore, unit, change, slower ? "  REGRESSION" : "");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    /** Keys results by benchmark name plus parameters, so each parameter combination is compared separately. */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("smartcashpower.app.benchmarks.", ""));
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,105 @@
+package smartcashpower.app.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import smartcashpower.app.dto.MeterDetailDTO;
+import smartcashpower.app.dto.TransactionDetailDTO;
+import smartcashpower.app.dto.UserDetailedResponse;
+import smartcashpower.app.model.User;
+import smartcashpower.app.repository.UserRepository;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Test data and wiring shared by the benchmarks. Nothing here touches a database or starts Spring.
+ */
+final class Fixtures {
+
+    static final String JWT_SECRET = "benchmark-only-smart-cash-power-signing-key";
+    static final LocalDateTime BASE_DATE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private Fixtures() {
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("benchmark.user@example.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z8/DiWJ0Z5a3qOsV6l5G5b3e");
+        user.setPhoneNumber("0780000042");
+        user.setFullName("Benchmark User");
+        user.setRole("USER");
+        return user;
+    }
+
+    /**
+     * A {@link UserRepository} that answers {@code findById} and {@code findByEmail} with the given
+     * user, standing in for the database so only the service's own work is measured.
+     */
+    static UserRepository userRepository(User user) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById", "findByEmail" -> Optional.of(user);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "UserRepository stub";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * The report rows as the JPQL constructor projection builds them.
+     */
+    static List<TransactionDetailDTO> transactionDetails(int rows) {
+        List<TransactionDetailDTO> details = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            details.add(new TransactionDetailDTO(i, "user" + (i % 1000) + "@example.com", "User " + (i % 1000),
+                    "M" + (100000 + i % 5000), 1000f + i % 50 * 100, 10f + i % 50, BASE_DATE.plusSeconds(i),
+                    i % 10 == 0 ? "FAILED" : "SUCCESS", "ref-" + i));
+        }
+        return details;
+    }
+
+    static List<MeterDetailDTO> meterDetails(int rows) {
+        List<MeterDetailDTO> details = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            details.add(new MeterDetailDTO((long) i, "M" + (100000 + i), 120.5f, true,
+                    "user" + i + "@example.com", "User " + i));
+        }
+        return details;
+    }
+
+    static List<UserDetailedResponse> userSummaries(int rows) {
+        List<UserDetailedResponse> users = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            users.add(new UserDetailedResponse((long) i, "user" + i + "@example.com", "User " + i,
+                    "078" + (1000000 + i), BASE_DATE.plusMinutes(i), true, (long) (i % 3)));
+        }
+        return users;
+    }
+
+    /**
+     * An ObjectMapper with the same defaults Spring Boot applies to the application's.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * Sets a field the application injects with {@code @Autowired}, since there is no container here.
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName, e);
+        }
+    }
+}
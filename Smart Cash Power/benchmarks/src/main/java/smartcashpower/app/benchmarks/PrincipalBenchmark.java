@@ -0,0 +1,51 @@
+package smartcashpower.app.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+import smartcashpower.app.config.AuthenticatedUser;
+import smartcashpower.app.model.User;
+import smartcashpower.app.service.CustomUserDetailsService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Principal building in {@link CustomUserDetailsService}, with the repository stubbed out so only
+ * the service's own work is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrincipalBenchmark {
+
+    private User user;
+    private CustomUserDetailsService userDetailsService;
+
+    @Setup
+    public void setUp() {
+        user = Fixtures.user();
+        userDetailsService = new CustomUserDetailsService(10_000, 300, new SimpleMeterRegistry());
+        Fixtures.inject(userDetailsService, "userRepository", Fixtures.userRepository(user));
+        userDetailsService.loadUserById(user.getId());
+    }
+
+    /** The login path, which builds a Spring Security user with the password hash. */
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername(user.getEmail());
+    }
+
+    /** The refresh path against a warm principal cache. */
+    @Benchmark
+    public AuthenticatedUser loadUserByIdCached() {
+        return userDetailsService.loadUserById(user.getId());
+    }
+
+    @Benchmark
+    public AuthenticatedUser buildFromUser() {
+        return AuthenticatedUser.from(user);
+    }
+}
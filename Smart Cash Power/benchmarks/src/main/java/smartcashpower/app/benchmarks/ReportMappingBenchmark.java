@@ -0,0 +1,64 @@
+package smartcashpower.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import smartcashpower.app.dto.MeterDetailDTO;
+import smartcashpower.app.dto.TransactionDetailDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping query rows into the admin report DTOs. The reports use JPQL constructor projections, so
+ * this is the per-row work Hibernate does through those constructors once the values are read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportMappingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private Object[][] transactionRows;
+    private Object[][] meterRows;
+
+    @Setup
+    public void setUp() {
+        transactionRows = new Object[rows][];
+        meterRows = new Object[rows][];
+        LocalDateTime settledAt = LocalDateTime.now().minusMinutes(30);
+        for (int i = 0; i < rows; i++) {
+            transactionRows[i] = new Object[]{i, "user" + i + "@example.com", "User " + i, "M" + i,
+                    1000f, 10f, Fixtures.BASE_DATE.plusSeconds(i), "SUCCESS", "ref-" + i};
+            meterRows[i] = new Object[]{(long) i, "M" + i, 120.5f, 0.001f, settledAt, true,
+                    "user" + i + "@example.com", "User " + i};
+        }
+    }
+
+    @Benchmark
+    public void transactionDetails(Blackhole blackhole) {
+        List<TransactionDetailDTO> details = new ArrayList<>(rows);
+        for (Object[] row : transactionRows) {
+            details.add(new TransactionDetailDTO((Integer) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (Float) row[4], (Float) row[5], (LocalDateTime) row[6], (String) row[7], (String) row[8]));
+        }
+        blackhole.consume(details);
+    }
+
+    /** Includes projecting each meter's balance to now. */
+    @Benchmark
+    public void meterDetails(Blackhole blackhole) {
+        List<MeterDetailDTO> details = new ArrayList<>(rows);
+        for (Object[] row : meterRows) {
+            details.add(new MeterDetailDTO((Long) row[0], (String) row[1], (Float) row[2], (Float) row[3],
+                    (LocalDateTime) row[4], (Boolean) row[5], (String) row[6], (String) row[7]));
+        }
+        blackhole.consume(details);
+    }
+}
@@ -0,0 +1,59 @@
+package smartcashpower.app.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import smartcashpower.app.dto.MeterDetailDTO;
+import smartcashpower.app.dto.PageResponse;
+import smartcashpower.app.dto.TransactionDetailDTO;
+import smartcashpower.app.dto.UserDetailedResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the admin report payloads, with the ObjectMapper configured as Spring
+ * Boot configures the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private ObjectWriter writer;
+    private List<TransactionDetailDTO> transactions;
+    private List<MeterDetailDTO> meters;
+    private PageResponse<UserDetailedResponse> users;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        writer = objectMapper.writer();
+        transactions = Fixtures.transactionDetails(rows);
+        meters = Fixtures.meterDetails(rows);
+        users = new PageResponse<>(Fixtures.userSummaries(Math.min(rows, 200)), 0, 200, true);
+    }
+
+    @Benchmark
+    public byte[] transactionReport() throws JsonProcessingException {
+        return writer.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] meterListing() throws JsonProcessingException {
+        return writer.writeValueAsBytes(meters);
+    }
+
+    /** One page of the admin user table; pages are capped at 200 rows. */
+    @Benchmark
+    public byte[] userPage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(users);
+    }
+}
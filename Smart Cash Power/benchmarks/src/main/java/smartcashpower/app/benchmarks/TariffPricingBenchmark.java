@@ -0,0 +1,57 @@
+package smartcashpower.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import smartcashpower.app.dto.TariffTierDTO;
+import smartcashpower.app.service.TariffTable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-purchase pricing with a compiled {@link TariffTable}, against the flat division it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TariffPricingBenchmark {
+
+    private TariffTable table;
+    private float amount;
+
+    @Setup
+    public void setUp() {
+        table = TariffTable.compile(List.of(
+                new TariffTierDTO("RESIDENTIAL", 0f, 89f),
+                new TariffTierDTO("RESIDENTIAL", 20f, 310f),
+                new TariffTierDTO("RESIDENTIAL", 50f, 369f),
+                new TariffTierDTO("COMMERCIAL", 0f, 355f),
+                new TariffTierDTO("COMMERCIAL", 100f, 376f),
+                new TariffTierDTO("INDUSTRIAL", 0f, 255f)), "RESIDENTIAL");
+        amount = 5000f;
+    }
+
+    /** The old flat 100 RWF per unit. */
+    @Benchmark
+    public float flatPrice() {
+        return amount / 100f;
+    }
+
+    @Benchmark
+    public float withinFirstTier() {
+        return table.unitsFor("RESIDENTIAL", 5f, 1000f);
+    }
+
+    /** A purchase that spans all three residential tiers. */
+    @Benchmark
+    public float acrossTiers() {
+        return table.unitsFor("RESIDENTIAL", 10f, amount * 4);
+    }
+
+    @Benchmark
+    public float unknownCategory() {
+        return table.unitsFor("AGRICULTURAL", 30f, amount);
+    }
+}
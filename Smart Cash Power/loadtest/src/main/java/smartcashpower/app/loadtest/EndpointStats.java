@@ -0,0 +1,33 @@
+package smartcashpower.app.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency (microseconds) and error count for one endpoint. Recording is safe from any number of
+ * threads; {@link #reset} returns everything recorded since the previous reset.
+ */
+final class EndpointStats {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Recorder recorder = new Recorder(1, MAX_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long nanos, boolean successful) {
+        recorder.recordValue(Math.min(Math.max(nanos / 1_000, 1), MAX_MICROS));
+        if (!successful) {
+            errors.increment();
+        }
+    }
+
+    Interval reset() {
+        return new Interval(recorder.getIntervalHistogram(), errors.sumThenReset());
+    }
+
+    record Interval(Histogram latencyMicros, long errors) {
+    }
+}
@@ -0,0 +1,259 @@
+package smartcashpower.app.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import smartcashpower.app.model.Meter;
+import smartcashpower.app.model.Payment;
+import smartcashpower.app.model.Transaction;
+import smartcashpower.app.model.User;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Insert throughput of purchases, the transaction and payment rows {@code initiatePurchase} writes,
+ * with IDENTITY ids against pooled sequences and with JDBC batching off and on. Each combination
+ * gets a fresh database on an in-process PostgreSQL and persists the real entity classes through
+ * Hibernate; IDENTITY is restored with the {@code identity-ids.xml} mapping override.
+ * <p>
+ * Settings are the {@code loadtest.inserts.*} properties in {@code loadtest.properties}, overridable
+ * with {@code --name=value} arguments.
+ */
+public class InsertThroughput {
+
+    private static final Logger log = LoggerFactory.getLogger(InsertThroughput.class);
+
+    private static final String DB_USER = "smartcash_user";
+    private static final String DB_PASSWORD = "smartcashpower123@#";
+
+    private record Result(String ids, boolean batching, int pairsPerTransaction, long pairs, double seconds) {
+
+        double rowsPerSecond() {
+            return pairs * 2 / seconds;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        environment.getPropertySources().addLast(new ResourcePropertySource("classpath:loadtest.properties"));
+        // No Spring Boot application here to apply the logging.level.* settings, so apply them directly.
+        LoggingSystem logging = LoggingSystem.get(InsertThroughput.class.getClassLoader());
+        logging.setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, environment.getProperty("logging.level.root", LogLevel.class));
+        logging.setLogLevel("smartcashpower.app.loadtest",
+                environment.getProperty("logging.level.smartcashpower.app.loadtest", LogLevel.class));
+        int pairs = environment.getRequiredProperty("loadtest.inserts.pairs", Integer.class);
+        int warmupPairs = environment.getRequiredProperty("loadtest.inserts.warmup-pairs", Integer.class);
+        int threads = environment.getRequiredProperty("loadtest.inserts.threads", Integer.class);
+        int[] pairsPerTransaction = environment.getRequiredProperty("loadtest.inserts.pairs-per-transaction", int[].class);
+        Path reportDir = Path.of(environment.getRequiredProperty("loadtest.report-dir"));
+
+        List<Result> results = new ArrayList<>();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE USER " + DB_USER + " WITH SUPERUSER PASSWORD '" + DB_PASSWORD + "'");
+            }
+            int run = 0;
+            for (int perTransaction : pairsPerTransaction) {
+                for (String ids : List.of("IDENTITY", "SEQUENCE")) {
+                    for (boolean batching : new boolean[]{false, true}) {
+                        String database = "inserts_" + run++;
+                        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                             Statement statement = connection.createStatement()) {
+                            statement.execute("CREATE DATABASE " + database + " OWNER " + DB_USER);
+                        }
+                        Result result = measure(postgres.getJdbcUrl(DB_USER, database), ids, batching,
+                                perTransaction, threads, warmupPairs, pairs);
+                        log.info("{} ids, batching {}, {} pairs per transaction: {} rows/s", ids,
+                                batching ? "on" : "off", perTransaction, Math.round(result.rowsPerSecond()));
+                        results.add(result);
+                    }
+                }
+            }
+        }
+        report(results, threads, reportDir);
+    }
+
+    private static Result measure(String jdbcUrl, String ids, boolean batching, int pairsPerTransaction,
+                                  int threads, int warmupPairs, int pairs) throws Exception {
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(jdbcUrl);
+            dataSource.setUsername(DB_USER);
+            dataSource.setPassword(DB_PASSWORD);
+            dataSource.setMaximumPoolSize(threads);
+            // As in application.properties: pgjdbc rewrites a batch into multi-row INSERTs.
+            dataSource.addDataSourceProperty("reWriteBatchedInserts", String.valueOf(batching));
+
+            LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+            factoryBean.setDataSource(dataSource);
+            factoryBean.setPackagesToScan("smartcashpower.app.model");
+            factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            if (ids.equals("IDENTITY")) {
+                factoryBean.setMappingResources("identity-ids.xml");
+            }
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("hibernate.hbm2ddl.auto", "create-only");
+            properties.put("hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName());
+            properties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+            properties.put("hibernate.jdbc.batch_size", batching ? "50" : "0");
+            properties.put("hibernate.order_inserts", String.valueOf(batching));
+            factoryBean.setJpaPropertyMap(properties);
+            factoryBean.afterPropertiesSet();
+            EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+            try {
+                List<Meter> meters = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    meters.add(createMeter(entityManagerFactory, i));
+                }
+                insert(entityManagerFactory, meters, pairsPerTransaction, warmupPairs);
+                long start = System.nanoTime();
+                long inserted = insert(entityManagerFactory, meters, pairsPerTransaction, pairs);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                return new Result(ids, batching, pairsPerTransaction, inserted, seconds);
+            } finally {
+                factoryBean.destroy();
+            }
+        }
+    }
+
+    /**
+     * Persists {@code pairs} transaction and payment pairs across one thread per meter, in database
+     * transactions of {@code pairsPerTransaction} pairs.
+     *
+     * @return the number of pairs persisted
+     */
+    private static long insert(EntityManagerFactory entityManagerFactory, List<Meter> meters,
+                               int pairsPerTransaction, int pairs) throws Exception {
+        AtomicLong remaining = new AtomicLong(pairs);
+        AtomicLong inserted = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(meters.size());
+        try {
+            List<Future<?>> workers = new ArrayList<>(meters.size());
+            for (Meter meter : meters) {
+                workers.add(executor.submit(() -> {
+                    long claimed;
+                    while ((claimed = Math.min(remaining.getAndAdd(-pairsPerTransaction), pairsPerTransaction)) > 0) {
+                        persistPairs(entityManagerFactory, meter, (int) claimed);
+                        inserted.addAndGet(claimed);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return inserted.get();
+    }
+
+    private static void persistPairs(EntityManagerFactory entityManagerFactory, Meter meter, int count) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            User user = entityManager.getReference(User.class, meter.getUser().getId());
+            Meter reference = entityManager.getReference(Meter.class, meter.getId());
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < count; i++) {
+                String suffix = Long.toString(System.nanoTime(), 36) + Thread.currentThread().threadId() + i;
+                Transaction transaction = new Transaction();
+                transaction.setUser(user);
+                transaction.setMeter(reference);
+                transaction.setAmount(1000f);
+                transaction.setUnitsPurchased(10f);
+                transaction.setTransactionDate(now);
+                transaction.setStatus("PENDING");
+                transaction.setTransactionReference("TXN-" + suffix);
+                entityManager.persist(transaction);
+
+                Payment payment = new Payment();
+                payment.setTransaction(transaction);
+                payment.setProviderName("MTN MoMo");
+                payment.setPaymentReference("PAY-" + suffix);
+                payment.setPaymentStatus("PENDING");
+                payment.setPaymentDate(now);
+                entityManager.persist(payment);
+            }
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static Meter createMeter(EntityManagerFactory entityManagerFactory, int index) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            User user = new User();
+            user.setEmail("inserts-" + index + "@loadtest.local");
+            user.setPassword("not-a-real-hash");
+            user.setPhoneNumber("07" + String.format("%08d", index));
+            user.setFullName("Insert Throughput " + index);
+            entityManager.persist(user);
+            Meter meter = new Meter();
+            meter.setMeterNumber("INSERTS-" + index);
+            meter.setUser(user);
+            entityManager.persist(meter);
+            entityManager.getTransaction().commit();
+            return meter;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static void report(List<Result> results, int threads, Path reportDir) throws Exception {
+        Files.createDirectories(reportDir);
+        PrintStream out = System.out;
+        out.printf("%nTransaction + payment inserts with %d threads%n", threads);
+        out.printf("%-10s %-9s %12s %10s %10s%n", "ids", "batching", "pairs/tx", "pairs", "rows/s");
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Result result : results) {
+            out.printf("%-10s %-9s %12d %10d %10.0f%n", result.ids(), result.batching() ? "on" : "off",
+                    result.pairsPerTransaction(), result.pairs(), result.rowsPerSecond());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("ids", result.ids());
+            row.put("batching", result.batching());
+            row.put("pairsPerTransaction", result.pairsPerTransaction());
+            row.put("pairs", result.pairs());
+            row.put("seconds", result.seconds());
+            row.put("rowsPerSecond", result.rowsPerSecond());
+            rows.add(row);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("threads", threads);
+        summary.put("results", rows);
+        Path file = reportDir.resolve("insert-throughput.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), summary);
+        out.printf("Report written to %s%n", file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,254 @@
+package smartcashpower.app.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load against a running node. Each virtual user is a virtual thread that registers,
+ * logs in and adds a meter, then repeatedly picks a purchase, status poll, history page or meter
+ * listing by weight. Admin users cycle through the admin tables and reports. Every call is timed
+ * per endpoint.
+ */
+final class LoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final String PASSWORD = "loadtest-secret";
+    private static final String[] PROVIDERS = {"MTN MoMo", "Airtel Money"};
+
+    private final URI baseUri;
+    private final Environment environment;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger userSequence = new AtomicInteger();
+    private final String runId = Long.toString(System.currentTimeMillis() % 100_000_000L);
+    private final int[] mix;
+    private volatile boolean running = true;
+
+    LoadGenerator(URI baseUri, Environment environment) {
+        this.baseUri = baseUri;
+        this.environment = environment;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.mix = new int[]{
+                property("loadtest.mix.purchase"),
+                property("loadtest.mix.status"),
+                property("loadtest.mix.history"),
+                property("loadtest.mix.meters")};
+    }
+
+    /**
+     * Registers a user and returns its id; used by the harness to promote admins.
+     */
+    String register(String label) throws IOException, InterruptedException {
+        int n = userSequence.incrementAndGet();
+        String email = label + "-" + runId + "-" + n + "@loadtest.local";
+        Map<String, String> body = Map.of(
+                "email", email,
+                "password", PASSWORD,
+                "phoneNumber", String.format("07%08d", (Long.parseLong(runId) * 1000 + n) % 100_000_000L),
+                "fullName", "Load " + label + " " + n);
+        expectOk(send("POST /auth/register", post("/api/v1/auth/register", null, body)));
+        return email;
+    }
+
+    String login(String email) throws IOException, InterruptedException {
+        HttpResponse<String> response = expectOk(send("POST /auth/login",
+                post("/api/v1/auth/login", null, Map.of("email", email, "password", PASSWORD))));
+        return objectMapper.readTree(response.body()).path("token").asText();
+    }
+
+    /**
+     * Runs the workload until {@link #stop()} is called.
+     */
+    void start(ExecutorService executor, int users, int admins, List<String> adminEmails) {
+        for (int i = 0; i < users; i++) {
+            executor.submit(this::userLoop);
+        }
+        for (int i = 0; i < admins; i++) {
+            String email = adminEmails.get(i);
+            executor.submit(() -> adminLoop(email));
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * Returns the latency and errors recorded per endpoint since the previous call.
+     */
+    Map<String, EndpointStats.Interval> snapshot() {
+        Map<String, EndpointStats.Interval> intervals = new TreeMap<>();
+        stats.forEach((endpoint, endpointStats) -> intervals.put(endpoint, endpointStats.reset()));
+        return intervals;
+    }
+
+    private void userLoop() {
+        try {
+            String email = register("user");
+            String token = login(email);
+            String meterNumber = "LT" + runId + "-" + userSequence.incrementAndGet();
+            expectOk(send("POST /meters", post("/api/v1/meters", token, Map.of("meterNumber", meterNumber))));
+            JsonNode meters = objectMapper.readTree(expectOk(send("GET /meters", get("/api/v1/meters", token))).body());
+            long meterId = meters.path(0).path("id").asLong();
+
+            String lastReference = null;
+            long thinkTime = property("loadtest.think-time-ms");
+            while (running) {
+                switch (pickAction()) {
+                    case 0 -> {
+                        int amount = 100 * ThreadLocalRandom.current().nextInt(1, 201);
+                        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/v1/transactions/purchase"))
+                                .header("Authorization", "Bearer " + token)
+                                .header("Content-Type", "application/json")
+                                .header("Idempotency-Key", UUID.randomUUID().toString())
+                                .POST(body(Map.of("meterId", meterId, "amount", amount, "mobileMoneyProvider", PROVIDERS[ThreadLocalRandom.current().nextInt(PROVIDERS.length)])))
+                                .build();
+                        HttpResponse<String> response = send("POST /transactions/purchase", request);
+                        if (response.statusCode() / 100 == 2) {
+                            lastReference = objectMapper.readTree(response.body()).path("referenceNumber").asText();
+                        }
+                    }
+                    case 1 -> {
+                        if (lastReference != null) {
+                            send("GET /transactions/{reference}/status",
+                                    get("/api/v1/transactions/" + lastReference + "/status", token));
+                        }
+                    }
+                    case 2 -> send("GET /transactions/history", get("/api/v1/transactions/history?limit=20", token));
+                    default -> send("GET /meters", get("/api/v1/meters", token));
+                }
+                pause(thinkTime);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Virtual user stopped: {}", e.toString());
+        }
+    }
+
+    private void adminLoop(String email) {
+        try {
+            String token = login(email);
+            long thinkTime = property("loadtest.admin-think-time-ms");
+            DateTimeFormatter iso = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+            int step = 0;
+            while (running) {
+                switch (step++ % 5) {
+                    case 0 -> send("GET /admin/users", get("/api/v1/admin/users?page=0&size=50", token));
+                    case 1 -> send("GET /admin/users?search", get("/api/v1/admin/users?search=user-" + runId + "-1&size=50", token));
+                    case 2 -> {
+                        LocalDateTime end = LocalDateTime.now();
+                        send("GET /admin/reports/transactions", get("/api/v1/admin/reports/transactions?startDate="
+                                + end.minusMinutes(1).format(iso) + "&endDate=" + end.format(iso), token));
+                    }
+                    case 3 -> {
+                        YearMonth month = YearMonth.now();
+                        send("GET /admin/analytics/monthly", get("/api/v1/admin/analytics/monthly?from="
+                                + month.minusMonths(11) + "&to=" + month, token));
+                    }
+                    default -> send("GET /admin/meters", get("/api/v1/admin/meters", token));
+                }
+                pause(thinkTime);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Admin user stopped: {}", e.toString());
+        }
+    }
+
+    private int pickAction() {
+        int total = 0;
+        for (int weight : mix) {
+            total += weight;
+        }
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < mix.length; i++) {
+            pick -= mix[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return mix.length - 1;
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, name -> new EndpointStats());
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            endpointStats.record(System.nanoTime() - start, response.statusCode() / 100 == 2);
+            return response;
+        } catch (IOException e) {
+            endpointStats.record(System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    private HttpResponse<String> expectOk(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(response.request().method() + " " + response.request().uri().getPath()
+                    + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest post(String path, String token, Object body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(body(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest.BodyPublisher body(Object body) throws IOException {
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+    }
+
+    private int property(String key) {
+        return environment.getRequiredProperty(key, Integer.class);
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
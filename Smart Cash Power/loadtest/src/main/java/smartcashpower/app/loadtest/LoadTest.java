@@ -0,0 +1,214 @@
+package smartcashpower.app.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import smartcashpower.app.SmartCashPowerApplication;
+import smartcashpower.app.dto.ProviderHealthResponse;
+import smartcashpower.app.integration.IntegrationService;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test. Starts PostgreSQL in-process, boots the application against it with the
+ * provider integration replaced by {@link StubIntegrationService}, drives it over HTTP with
+ * {@link LoadGenerator} and reports throughput and latency percentiles per endpoint.
+ * <p>
+ * Settings come from {@code loadtest.properties}; any of them, and any application property, can be
+ * overridden with {@code --name=value} arguments.
+ */
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String DB_USER = "smartcash_user";
+    private static final String DB_PASSWORD = "smartcashpower123@#";
+    private static final String DB_NAME = "smartcashpower_db";
+
+    public static void main(String[] args) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE USER " + DB_USER + " WITH SUPERUSER PASSWORD '" + DB_PASSWORD + "'");
+                statement.execute("CREATE DATABASE " + DB_NAME + " OWNER " + DB_USER);
+            }
+            // Passed as a command-line property so it wins over application.properties; user arguments come after it.
+            List<String> arguments = new ArrayList<>();
+            arguments.add("--spring.datasource.url=jdbc:postgresql://localhost:" + postgres.getPort() + "/" + DB_NAME);
+            arguments.addAll(List.of(args));
+
+            try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                    new SpringApplicationBuilder(SmartCashPowerApplication.class, StubIntegrationConfig.class)
+                            .properties("spring.config.additional-location=classpath:/loadtest.properties")
+                            .run(arguments.toArray(String[]::new))) {
+                run(context, postgres);
+            }
+        }
+        // Virtual users blocked on the stopped server or the HTTP client's executor must not keep the JVM alive.
+        System.exit(0);
+    }
+
+    private static void run(ServletWebServerApplicationContext context, EmbeddedPostgres postgres) throws Exception {
+        Environment environment = context.getEnvironment();
+        int users = environment.getRequiredProperty("loadtest.users", Integer.class);
+        int admins = environment.getRequiredProperty("loadtest.admins", Integer.class);
+        int warmupSeconds = environment.getRequiredProperty("loadtest.warmup-seconds", Integer.class);
+        int durationSeconds = environment.getRequiredProperty("loadtest.duration-seconds", Integer.class);
+        Path reportDir = Path.of(environment.getRequiredProperty("loadtest.report-dir"));
+
+        try (Connection connection = connect(postgres);
+             Statement statement = connection.createStatement()) {
+            String indexes = new ClassPathResource("db/upgrade/002_user_search_indexes.sql")
+                    .getContentAsString(StandardCharsets.UTF_8);
+            statement.execute(indexes);
+        }
+
+        URI baseUri = URI.create("http://localhost:" + context.getWebServer().getPort());
+        LoadGenerator generator = new LoadGenerator(baseUri, environment);
+        List<String> adminEmails = new ArrayList<>();
+        for (int i = 0; i < admins; i++) {
+            adminEmails.add(generator.register("admin"));
+        }
+        try (Connection connection = connect(postgres);
+             PreparedStatement promote = connection.prepareStatement("UPDATE users SET role = 'ADMIN' WHERE email = ?")) {
+            for (String email : adminEmails) {
+                promote.setString(1, email);
+                promote.executeUpdate();
+            }
+        }
+
+        log.info("Load test against {} with {} users and {} admins: {}s warmup, {}s measured",
+                baseUri, users, admins, warmupSeconds, durationSeconds);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        generator.start(executor, users, admins, adminEmails);
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        generator.snapshot();
+        LocalDateTime measuredFrom = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        Map<String, EndpointStats.Interval> results = generator.snapshot();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        LocalDateTime measuredTo = LocalDateTime.now();
+
+        generator.stop();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        Map<String, Long> transactionsByStatus;
+        try (Connection connection = connect(postgres)) {
+            transactionsByStatus = transactionsByStatus(connection, measuredFrom, measuredTo);
+        }
+        List<ProviderHealthResponse> providers = context.getBean(IntegrationService.class).getProviderHealth();
+        report(results, transactionsByStatus, providers, elapsedSeconds, reportDir);
+    }
+
+    private static Connection connect(EmbeddedPostgres postgres) throws SQLException {
+        return postgres.getDatabase(DB_USER, DB_NAME).getConnection();
+    }
+
+    /**
+     * Final statuses of the purchases started during the measured window, so the report shows how
+     * many completed end to end and how many were still in flight when it ended.
+     */
+    private static Map<String, Long> transactionsByStatus(Connection connection, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT status, COUNT(*) FROM transactions WHERE transaction_date >= ? AND transaction_date < ? "
+                        + "GROUP BY status ORDER BY status")) {
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    counts.put(rows.getString(1), rows.getLong(2));
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static void report(Map<String, EndpointStats.Interval> results, Map<String, Long> transactionsByStatus,
+                               List<ProviderHealthResponse> providers, double elapsedSeconds, Path reportDir)
+            throws IOException {
+        Files.createDirectories(reportDir);
+        PrintStream out = System.out;
+        out.printf("%n%-38s %9s %9s %9s %9s %9s %9s %7s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, EndpointStats.Interval> entry : results.entrySet()) {
+            Histogram histogram = entry.getValue().latencyMicros();
+            long count = histogram.getTotalCount();
+            if (count == 0) {
+                continue;
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count);
+            summary.put("throughputPerSecond", count / elapsedSeconds);
+            summary.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+            summary.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+            summary.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+            summary.put("maxMillis", millis(histogram.getMaxValue()));
+            summary.put("errors", entry.getValue().errors());
+            endpoints.put(entry.getKey(), summary);
+
+            out.printf("%-38s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7d%n", entry.getKey(), count,
+                    summary.get("throughputPerSecond"), summary.get("p50Millis"), summary.get("p99Millis"),
+                    summary.get("p999Millis"), summary.get("maxMillis"), entry.getValue().errors());
+
+            String fileName = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".hgrm";
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(reportDir.resolve(fileName)))) {
+                histogram.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+
+        long completed = transactionsByStatus.getOrDefault("SUCCESS", 0L);
+        out.printf("%nPurchases started in the window by status: %s%n", transactionsByStatus);
+        out.printf("Completed end to end: %.1f/s%n", completed / elapsedSeconds);
+        for (ProviderHealthResponse provider : providers) {
+            out.printf("Provider %s: circuit %s, rejections %s%n",
+                    provider.getProvider(), provider.getCircuitState(), provider.getRejections());
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("durationSeconds", elapsedSeconds);
+        summary.put("endpoints", endpoints);
+        summary.put("transactionsByStatus", transactionsByStatus);
+        summary.put("completedPerSecond", completed / elapsedSeconds);
+        summary.put("providers", providers);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportDir.resolve("summary.json").toFile(), summary);
+        out.printf("Report written to %s%n", reportDir.toAbsolutePath());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
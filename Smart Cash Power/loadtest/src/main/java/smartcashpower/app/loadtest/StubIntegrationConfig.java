@@ -0,0 +1,37 @@
+package smartcashpower.app.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import smartcashpower.app.integration.MobileMoneyClient;
+
+import java.util.List;
+
+/**
+ * Puts {@link StubIntegrationService} in front of the application's {@code IntegrationService}.
+ */
+@Configuration
+public class StubIntegrationConfig {
+
+    @Bean
+    @Primary
+    public StubIntegrationService stubIntegrationService(
+            MeterRegistry meterRegistry,
+            Environment environment,
+            List<MobileMoneyClient> mobileMoneyClients,
+            @Value("${loadtest.stub.momo-latency-ms}") long momoLatencyMs,
+            @Value("${loadtest.stub.momo-latency-max-ms}") long momoLatencyMaxMs,
+            @Value("${loadtest.stub.momo-success-rate}") double momoSuccessRate,
+            @Value("${loadtest.stub.momo-error-rate}") double momoErrorRate,
+            @Value("${loadtest.stub.reg-latency-ms}") long regLatencyMs,
+            @Value("${loadtest.stub.reg-latency-max-ms}") long regLatencyMaxMs,
+            @Value("${loadtest.stub.reg-success-rate}") double regSuccessRate,
+            @Value("${loadtest.stub.reg-error-rate}") double regErrorRate) {
+        return new StubIntegrationService(meterRegistry, environment, mobileMoneyClients,
+                new StubIntegrationService.Latency(momoLatencyMs, momoLatencyMaxMs), momoSuccessRate, momoErrorRate,
+                new StubIntegrationService.Latency(regLatencyMs, regLatencyMaxMs), regSuccessRate, regErrorRate);
+    }
+}
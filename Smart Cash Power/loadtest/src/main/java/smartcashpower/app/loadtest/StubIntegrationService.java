@@ -0,0 +1,101 @@
+package smartcashpower.app.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import smartcashpower.app.integration.IntegrationService;
+import smartcashpower.app.integration.MobileMoneyClient;
+import smartcashpower.app.integration.MoMoRequest;
+import smartcashpower.app.integration.MoMoResponse;
+import smartcashpower.app.integration.REGUnitLoadRequest;
+import smartcashpower.app.integration.REGUnitLoadResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Provider stand-in with configurable latency, success and error rates. Only the round trips are
+ * replaced, so the application's own guards and instrumentation around them still run. A REG batch
+ * costs one round trip, as with the real bulk endpoint. Errors are thrown after the latency, like
+ * a provider that fails slowly.
+ */
+public class StubIntegrationService extends IntegrationService {
+
+    private final Latency momoLatency;
+    private final double momoSuccessRate;
+    private final double momoErrorRate;
+    private final Latency regLatency;
+    private final double regSuccessRate;
+    private final double regErrorRate;
+
+    public StubIntegrationService(MeterRegistry meterRegistry, Environment environment,
+                                  List<MobileMoneyClient> mobileMoneyClients,
+                                  Latency momoLatency, double momoSuccessRate, double momoErrorRate,
+                                  Latency regLatency, double regSuccessRate, double regErrorRate) {
+        super(meterRegistry, environment, mobileMoneyClients);
+        this.momoLatency = momoLatency;
+        this.momoSuccessRate = momoSuccessRate;
+        this.momoErrorRate = momoErrorRate;
+        this.regLatency = regLatency;
+        this.regSuccessRate = regSuccessRate;
+        this.regErrorRate = regErrorRate;
+    }
+
+    @Override
+    protected MoMoResponse callMoMo(MobileMoneyClient client, MoMoRequest request) {
+        momoLatency.pause();
+        maybeFail("MoMo", momoErrorRate);
+        MoMoResponse response = new MoMoResponse();
+        response.setSuccessful(ThreadLocalRandom.current().nextDouble() < momoSuccessRate);
+        response.setMessage(response.isSuccessful() ? "Payment successful" : "Payment failed at MoMo provider");
+        return response;
+    }
+
+    @Override
+    protected List<REGUnitLoadResponse> callRegBatch(List<REGUnitLoadRequest> requests) {
+        regLatency.pause();
+        maybeFail("REG", regErrorRate);
+        List<REGUnitLoadResponse> responses = new ArrayList<>(requests.size());
+        for (REGUnitLoadRequest request : requests) {
+            responses.add(regResponse());
+        }
+        return responses;
+    }
+
+    @Override
+    protected REGUnitLoadResponse callReg(REGUnitLoadRequest request) {
+        regLatency.pause();
+        maybeFail("REG", regErrorRate);
+        return regResponse();
+    }
+
+    private static void maybeFail(String provider, double errorRate) {
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw new IllegalStateException("Injected " + provider + " error");
+        }
+    }
+
+    private REGUnitLoadResponse regResponse() {
+        REGUnitLoadResponse response = new REGUnitLoadResponse();
+        response.setSuccessful(ThreadLocalRandom.current().nextDouble() < regSuccessRate);
+        response.setMessage(response.isSuccessful() ? "Units loaded successfully" : "Failed to load units at REG");
+        return response;
+    }
+
+    public record Latency(long minMillis, long maxMillis) {
+
+        void pause() {
+            long millis = maxMillis > minMillis
+                    ? ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1)
+                    : minMillis;
+            if (millis <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
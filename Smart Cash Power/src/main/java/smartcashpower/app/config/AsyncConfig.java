@@ -0,0 +1,73 @@
+package smartcashpower.app.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors for the purchase pipeline and admin jobs. Scheduled jobs run on Spring Boot's
+ * scheduler, sized by {@code spring.task.scheduling.pool.size} to give each job its own thread.
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * Worker pool for the purchase pipeline. Workers are virtual threads, so a worker blocked on a
+     * provider round-trip does not pin a platform thread; the pool size only bounds how many
+     * purchases are in flight against the providers at once.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor purchaseExecutor(
+            @Value("${purchase.pipeline.workers:64}") int workers,
+            @Value("${purchase.pipeline.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(Thread.ofVirtual().name("purchase-", 0).factory());
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Runs REG batch dispatches. Concurrency is bounded by the dispatcher itself, which only claims
+     * a new batch from the outbox when one of its dispatch slots is free.
+     */
+    @Bean
+    public SimpleAsyncTaskExecutor unitLoadExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("unit-load-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    /**
+     * Runs admin bulk deletions one job at a time, so a burst of requests cannot multiply the write
+     * load they put next to live purchase traffic.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor bulkDeletionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(Thread.ofVirtual().name("bulk-delete-", 0).factory());
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        return executor;
+    }
+
+    /**
+     * Runs settlement reconciliations one at a time. Each run spreads its own work over a pool of
+     * platform threads sized to the cores, so running two at once would only make both slower.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reconciliationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(Thread.ofVirtual().name("reconciliation-", 0).factory());
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        return executor;
+    }
+}
@@ -0,0 +1,93 @@
+package smartcashpower.app.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import smartcashpower.app.model.User;
+
+import java.io.Serial;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The principal placed in the security context by {@link JwtAuthFilter}. It carries the user's id
+ * and role so controllers never have to look the user up again, and it holds no password hash,
+ * which keeps the hash out of the principal cache.
+ */
+public final class AuthenticatedUser implements UserDetails {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private final String role;
+    private final int tokenVersion;
+    private final SimpleGrantedAuthority authority;
+
+    public AuthenticatedUser(Long id, String email, String role, int tokenVersion) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+        this.authority = new SimpleGrantedAuthority("ROLE_" + role);
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole(), user.getTokenVersion());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * The user's token version when this principal was loaded or its token issued.
+     */
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(authority);
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -1,10 +1,10 @@
 package smartcashpower.app.config;
 
-import smartcashpower.app.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -14,17 +14,30 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    @Autowired
-    private CustomUserDetailsService customUserDetailsService;
-
-    private static final String MOCK_TOKEN_PREFIX = "mock-jwt-token-";
     private static final String AUTH_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
 
+    private final JwtTokenService jwtTokenService;
+    private final MeterRegistry meterRegistry;
+    // Registered once so a request only records, with no tag array or registry lookup.
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+
+    @Autowired
+    public JwtAuthFilter(JwtTokenService jwtTokenService, MeterRegistry meterRegistry) {
+        this.jwtTokenService = jwtTokenService;
+        this.meterRegistry = meterRegistry;
+        this.authenticatedTimer = Timer.builder("smartcash.auth.filter").tag("outcome", "authenticated")
+                .register(meterRegistry);
+        this.rejectedTimer = Timer.builder("smartcash.auth.filter").tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -38,22 +51,17 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(BEARER_PREFIX.length());
 
-        // This is a mock validation. In a real app, you would use a JWT library to validate the signature and expiration.
-        if (token.startsWith(MOCK_TOKEN_PREFIX) && SecurityContextHolder.getContext().getAuthentication() == null) {
-            String userIdStr = token.substring(MOCK_TOKEN_PREFIX.length());
-            try {
-                Long userId = Long.parseLong(userIdStr);
-                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
-
-                if (userDetails != null) {
-                    UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                }
-            } catch (Exception e) {
-                logger.error("Cannot set user authentication: {}", e);
-            }
+        // The token is verified from its signature and claims alone; no database lookup per request.
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Optional<AuthenticatedUser> principal = jwtTokenService.verify(token, JwtTokenService.ACCESS);
+            principal.ifPresent(user -> {
+                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                        user, null, user.getAuthorities());
+                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            });
+            sample.stop(principal.isPresent() ? authenticatedTimer : rejectedTimer);
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,133 @@
+package smartcashpower.app.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies HS256-signed JWTs. Verification is pure CPU work (one HMAC and a small JSON
+ * parse), so the filter can authenticate a request without touching the database.
+ * <p>
+ * Access tokens are short-lived and carry the user's id, email, role and token version. Refresh
+ * tokens live longer and are only accepted by {@code /api/v1/auth/refresh}, which re-checks the user
+ * and their token version in the database before issuing a new pair.
+ */
+@Component
+public class JwtTokenService {
+
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.US_ASCII));
+
+    private final Mac prototype;
+    private final ObjectMapper objectMapper;
+    private final TokenRevocationList revocationList;
+    private final long accessTtlSeconds;
+    private final long refreshTtlSeconds;
+
+    public JwtTokenService(@Value("${security.jwt.secret}") String secret,
+                           @Value("${security.jwt.access-ttl-seconds:900}") long accessTtlSeconds,
+                           @Value("${security.jwt.refresh-ttl-seconds:604800}") long refreshTtlSeconds,
+                           ObjectMapper objectMapper,
+                           TokenRevocationList revocationList) {
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < 32) {
+            throw new IllegalStateException("security.jwt.secret must be at least 32 bytes for HS256");
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+        this.objectMapper = objectMapper;
+        this.revocationList = revocationList;
+        this.accessTtlSeconds = accessTtlSeconds;
+        this.refreshTtlSeconds = refreshTtlSeconds;
+    }
+
+    public long getAccessTtlSeconds() {
+        return accessTtlSeconds;
+    }
+
+    public String issueAccessToken(AuthenticatedUser user) {
+        return issue(user, ACCESS, accessTtlSeconds);
+    }
+
+    public String issueRefreshToken(AuthenticatedUser user) {
+        return issue(user, REFRESH, refreshTtlSeconds);
+    }
+
+    /**
+     * Returns the principal carried by a valid, unexpired, unrevoked token of the given type, or
+     * empty for anything else. Never throws on malformed input.
+     */
+    public Optional<AuthenticatedUser> verify(String token, String expectedType) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot || lastDot == token.length() - 1) {
+            return Optional.empty();
+        }
+        try {
+            byte[] expected = sign(token.substring(0, lastDot));
+            byte[] actual = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(expected, actual)
+                    || !HEADER.equals(token.substring(0, firstDot))) {
+                return Optional.empty();
+            }
+            JsonNode claims = objectMapper.readTree(DECODER.decode(token.substring(firstDot + 1, lastDot)));
+            long now = Instant.now().getEpochSecond();
+            Long userId = Long.valueOf(claims.path("sub").asText());
+            int tokenVersion = claims.path("ver").asInt(0);
+            if (!expectedType.equals(claims.path("typ").asText())
+                    || claims.path("exp").asLong(0) <= now
+                    || revocationList.isRevoked(userId, tokenVersion)) {
+                return Optional.empty();
+            }
+            return Optional.of(new AuthenticatedUser(userId, claims.path("email").asText(), claims.path("role").asText(),
+                    tokenVersion));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private String issue(AuthenticatedUser user, String type, long ttlSeconds) {
+        long now = Instant.now().getEpochSecond();
+        ObjectNode claims = objectMapper.createObjectNode()
+                .put("sub", user.getId().toString())
+                .put("email", user.getEmail())
+                .put("role", user.getRole())
+                .put("typ", type)
+                .put("ver", user.getTokenVersion())
+                .put("iat", now)
+                .put("exp", now + ttlSeconds);
+        try {
+            String signingInput = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return signingInput + "." + ENCODER.encodeToString(sign(signingInput));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not issue token", e);
+        }
+    }
+
+    private byte[] sign(String signingInput) throws CloneNotSupportedException {
+        // Mac is not thread-safe; cloning the initialised prototype skips the provider lookup and key setup.
+        Mac mac = (Mac) prototype.clone();
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+}
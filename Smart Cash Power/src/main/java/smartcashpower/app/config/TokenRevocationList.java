@@ -0,0 +1,55 @@
+package smartcashpower.app.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import smartcashpower.app.service.UserSecurityChangedEvent;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejects access tokens issued under an older token version than the user's last security change
+ * (block, deletion, password change), so the filter can honour the change without reading the user.
+ * <p>
+ * Only the newest version is kept per affected user, and only until every access token issued
+ * before it has expired, so the set stays small. The list is per node and lost on restart, which
+ * is bounded by the access token lifetime. Refresh tokens do not rely on it: refresh compares the
+ * token's version with the users table.
+ */
+@Component
+public class TokenRevocationList {
+
+    private record Revocation(int minVersion, long revokedAtSeconds) {
+    }
+
+    private final ConcurrentHashMap<Long, Revocation> revocationsByUserId = new ConcurrentHashMap<>();
+    private final long retentionSeconds;
+
+    public TokenRevocationList(@Value("${security.jwt.access-ttl-seconds:900}") long accessTtlSeconds) {
+        this.retentionSeconds = accessTtlSeconds;
+    }
+
+    public boolean isRevoked(Long userId, int tokenVersion) {
+        Revocation revocation = revocationsByUserId.get(userId);
+        return revocation != null && tokenVersion < revocation.minVersion();
+    }
+
+    public void revokeBelow(Long userId, int minVersion) {
+        Revocation revocation = new Revocation(minVersion, Instant.now().getEpochSecond());
+        revocationsByUserId.merge(userId, revocation,
+                (current, next) -> next.minVersion() > current.minVersion() ? next : current);
+    }
+
+    @EventListener
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        revokeBelow(event.userId(), event.tokenVersion());
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation-sweep-interval-ms:600000}")
+    public void evictExpired() {
+        long cutoff = Instant.now().getEpochSecond() - retentionSeconds;
+        revocationsByUserId.values().removeIf(revocation -> revocation.revokedAtSeconds() < cutoff);
+    }
+}
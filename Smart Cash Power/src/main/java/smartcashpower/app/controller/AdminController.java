@@ -1,31 +1,107 @@
 package smartcashpower.app.controller;
 
+import smartcashpower.app.dto.BulkDeletionJobResponse;
+import smartcashpower.app.dto.BulkDeletionRequest;
+import smartcashpower.app.dto.CacheStatsResponse;
+import smartcashpower.app.dto.PageResponse;
+import smartcashpower.app.dto.ProviderHealthResponse;
+import smartcashpower.app.dto.PurchaseMetricsResponse;
+import smartcashpower.app.dto.ReconciliationJobResponse;
+import smartcashpower.app.dto.ReconciliationRequest;
+import smartcashpower.app.dto.RevenueRollupResponse;
+import smartcashpower.app.dto.RollupBackfillResponse;
+import smartcashpower.app.dto.TariffTierDTO;
 import smartcashpower.app.dto.UserDetailedResponse;
+import smartcashpower.app.exception.ResourceNotFoundException;
+import smartcashpower.app.integration.IntegrationService;
 import smartcashpower.app.service.AdminService;
+import smartcashpower.app.service.BulkDeletionService;
+import smartcashpower.app.service.CustomUserDetailsService;
+import smartcashpower.app.service.PurchaseMetrics;
+import smartcashpower.app.service.ReconciliationService;
+import smartcashpower.app.service.TariffService;
+import smartcashpower.app.service.TransactionReportExporter;
+import smartcashpower.app.service.TransactionRollupService;
 import smartcashpower.app.dto.TransactionDetailDTO;
 import smartcashpower.app.dto.MeterDetailDTO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/admin")
 public class AdminController {
 
+    private static final int MAX_USERS_PAGE_SIZE = 200;
+    private static final int MAX_BULK_DELETION_IDS = 10_000;
+    // Only indexed columns (see User and its unique email) can be sorted on without a full scan of the users table.
+    private static final Set<String> USER_SORT_PROPERTIES = Set.of("createdAt", "email", "fullName");
+
     private final AdminService adminService;
+    private final BulkDeletionService bulkDeletionService;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final TransactionReportExporter transactionReportExporter;
+    private final TransactionRollupService transactionRollupService;
+    private final PurchaseMetrics purchaseMetrics;
+    private final IntegrationService integrationService;
+    private final ReconciliationService reconciliationService;
+    private final TariffService tariffService;
 
     @Autowired
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, BulkDeletionService bulkDeletionService,
+                           CustomUserDetailsService customUserDetailsService,
+                           TransactionReportExporter transactionReportExporter,
+                           TransactionRollupService transactionRollupService,
+                           PurchaseMetrics purchaseMetrics,
+                           IntegrationService integrationService,
+                           ReconciliationService reconciliationService,
+                           TariffService tariffService) {
         this.adminService = adminService;
+        this.bulkDeletionService = bulkDeletionService;
+        this.customUserDetailsService = customUserDetailsService;
+        this.transactionReportExporter = transactionReportExporter;
+        this.transactionRollupService = transactionRollupService;
+        this.purchaseMetrics = purchaseMetrics;
+        this.integrationService = integrationService;
+        this.reconciliationService = reconciliationService;
+        this.tariffService = tariffService;
     }
 
     @GetMapping("/users")
-    public ResponseEntity<List<UserDetailedResponse>> getAllUsers() {
-        return ResponseEntity.ok(adminService.getAllUsers());
+    public ResponseEntity<PageResponse<UserDetailedResponse>> getUsers(
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        if (page < 0 || size < 1 || size > MAX_USERS_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "page must be >= 0 and size between 1 and " + MAX_USERS_PAGE_SIZE);
+        }
+        if (!USER_SORT_PROPERTIES.contains(sort)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be one of " + USER_SORT_PROPERTIES);
+        }
+        Sort.Direction sortDirection = Sort.Direction.fromOptionalString(direction)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "direction must be asc or desc"));
+        // The id tie-breaker keeps page boundaries stable when the sort column has duplicates.
+        Sort order = Sort.by(sortDirection, sort).and(Sort.by(sortDirection, "id"));
+        return ResponseEntity.ok(adminService.getUsers(search, PageRequest.of(page, size, order)));
     }
 
     @GetMapping("/reports/transactions")
@@ -35,6 +111,69 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getTransactionsByDateRange(startDate, endDate));
     }
 
+    /**
+     * Streams the same report as CSV or NDJSON. Rows are written as they are read, so this is the
+     * endpoint to use for large date ranges.
+     */
+    @GetMapping("/reports/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "csv") String format) {
+        TransactionReportExporter.Format exportFormat;
+        try {
+            exportFormat = TransactionReportExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or ndjson");
+        }
+        boolean csv = exportFormat == TransactionReportExporter.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + (csv ? "csv" : "ndjson") + "\"")
+                .body(out -> transactionReportExporter.export(startDate, endDate, exportFormat, out));
+    }
+
+    /**
+     * Transaction count, revenue and units per month, provider and status, read from the daily
+     * rollups rather than the transactions table. Both months are inclusive.
+     */
+    @GetMapping("/analytics/monthly")
+    public ResponseEntity<List<RevenueRollupResponse>> getMonthlyTotals(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must not be before from");
+        }
+        return ResponseEntity.ok(transactionRollupService.getMonthlyTotals(from, to));
+    }
+
+    @GetMapping("/analytics/yearly")
+    public ResponseEntity<List<RevenueRollupResponse>> getYearlyTotals(@RequestParam int from, @RequestParam int to) {
+        if (to < from) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must not be before from");
+        }
+        return ResponseEntity.ok(transactionRollupService.getYearlyTotals(from, to));
+    }
+
+    /**
+     * Rebuilds the daily rollups for a date range (both days inclusive) from the transactions
+     * table. Needed once for history recorded before the rollups existed; safe to re-run.
+     */
+    @PostMapping("/analytics/rollups/backfill")
+    public ResponseEntity<RollupBackfillResponse> backfillRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "endDate must not be before startDate");
+        }
+        return ResponseEntity.ok(transactionRollupService.backfill(startDate, endDate));
+    }
+
+    @GetMapping("/users/count")
+    public ResponseEntity<Long> countUsers() {
+        return ResponseEntity.ok(adminService.countUsers());
+    }
+
     @PostMapping("/users/{userId}/block")
     public ResponseEntity<Void> blockUser(@PathVariable int userId) {
         adminService.blockUser(userId);
@@ -64,6 +203,70 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/meters/{meterId}/tariff-category")
+    public ResponseEntity<Void> updateMeterTariffCategory(@PathVariable long meterId, @RequestParam String category) {
+        adminService.updateMeterTariffCategory(meterId, category);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/tariffs")
+    public ResponseEntity<List<TariffTierDTO>> getTariffs() {
+        return ResponseEntity.ok(tariffService.getTiers());
+    }
+
+    /**
+     * Replaces the whole tariff. Takes effect on this node at once and on the others at their next
+     * reload.
+     */
+    @PutMapping("/tariffs")
+    public ResponseEntity<List<TariffTierDTO>> replaceTariffs(@RequestBody List<TariffTierDTO> tiers) {
+        return ResponseEntity.ok(tariffService.replaceTiers(tiers));
+    }
+
+    /**
+     * Queues the deletion of many meters and users with their history. Runs in the background in
+     * small transactions next to live traffic; poll the returned job for progress.
+     */
+    @PostMapping("/deletions")
+    public ResponseEntity<BulkDeletionJobResponse> submitBulkDeletion(@RequestBody BulkDeletionRequest request) {
+        List<Long> meterIds = request.getMeterIds() == null ? List.of() : request.getMeterIds();
+        List<Long> userIds = request.getUserIds() == null ? List.of() : request.getUserIds();
+        if (meterIds.isEmpty() && userIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "meterIds or userIds is required");
+        }
+        if (meterIds.size() + userIds.size() > MAX_BULK_DELETION_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "at most " + MAX_BULK_DELETION_IDS + " ids per request");
+        }
+        if (meterIds.contains(null) || userIds.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must not be null");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkDeletionService.submit(meterIds, userIds));
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<BulkDeletionJobResponse> getBulkDeletion(@PathVariable String jobId) {
+        return bulkDeletionService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Bulk deletion job not found: " + jobId));
+    }
+
+    /**
+     * Queues the reconciliation of a provider's payments for one day against its settlement file,
+     * which must already be in the settlement directory. Poll the returned job for the mismatches.
+     */
+    @PostMapping("/reconciliations")
+    public ResponseEntity<ReconciliationJobResponse> submitReconciliation(@RequestBody ReconciliationRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reconciliationService.submit(request));
+    }
+
+    @GetMapping("/reconciliations/{jobId}")
+    public ResponseEntity<ReconciliationJobResponse> getReconciliation(@PathVariable String jobId) {
+        return reconciliationService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Reconciliation job not found: " + jobId));
+    }
+
     @GetMapping("/password-resets")
     public ResponseEntity<List<UserDetailedResponse>> getPendingPasswordResets() {
         return ResponseEntity.ok(adminService.getPendingPasswordResets());
@@ -74,4 +277,26 @@ public class AdminController {
         adminService.approvePasswordReset(userId);
         return ResponseEntity.ok().build();
     }
+
+    @GetMapping("/metrics/principal-cache")
+    public ResponseEntity<CacheStatsResponse> getPrincipalCacheStats() {
+        return ResponseEntity.ok(customUserDetailsService.getPrincipalCacheStats());
+    }
+
+    /**
+     * Circuit breaker state, bulkhead usage and rejection counts for each provider on this node.
+     */
+    @GetMapping("/metrics/integrations")
+    public ResponseEntity<List<ProviderHealthResponse>> getIntegrationHealth() {
+        return ResponseEntity.ok(integrationService.getProviderHealth());
+    }
+
+    /**
+     * Live purchase counters on this node: totals and 1/5/15 minute windows, plus the latency of
+     * accepting a purchase. Reset on restart.
+     */
+    @GetMapping("/metrics/purchases")
+    public ResponseEntity<PurchaseMetricsResponse> getPurchaseMetrics() {
+        return ResponseEntity.ok(purchaseMetrics.snapshot());
+    }
 }
@@ -1,14 +1,15 @@
 package smartcashpower.app.controller;
 
+import smartcashpower.app.config.AuthenticatedUser;
+import smartcashpower.app.config.CurrentUser;
 import smartcashpower.app.dto.AddMeterRequest;
-import smartcashpower.app.model.Meter;
-import smartcashpower.app.model.User;
-import smartcashpower.app.repository.UserRepository;
+import smartcashpower.app.dto.MeterResponse;
+import smartcashpower.app.dto.UpdateUnitsRequest;
 import smartcashpower.app.service.MeterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -17,41 +18,43 @@ import java.util.List;
 public class MeterController {
 
     private final MeterService meterService;
-    private final UserRepository userRepository;
+
+    private static final int MAX_BATCH_SIZE = 500;
 
     @Autowired
-    public MeterController(MeterService meterService, UserRepository userRepository) {
+    public MeterController(MeterService meterService) {
         this.meterService = meterService;
-        this.userRepository = userRepository;
-    }
-
-    private Integer getCurrentUserId(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found with email: " + email));
-        return user.getId().intValue();
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public void addMeter(@RequestBody AddMeterRequest request, Authentication authentication) {
-        meterService.addMeterToUser(getCurrentUserId(authentication), request.getMeterNumber());
+    public void addMeter(@RequestBody AddMeterRequest request, @CurrentUser AuthenticatedUser user) {
+        meterService.addMeterToUser(user.getId(), request.getMeterNumber());
     }
 
     @GetMapping
-    public List<Meter> getUserMeters(Authentication authentication) {
-        return meterService.getUserMeters(getCurrentUserId(authentication));
+    public List<MeterResponse> getUserMeters(@CurrentUser AuthenticatedUser user) {
+        return meterService.getUserMeters(user.getId());
     }
 
     @DeleteMapping("/{meterId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteMeter(@PathVariable Long meterId, Authentication authentication) {
-        meterService.deleteMeter(getCurrentUserId(authentication), meterId);
+    public void deleteMeter(@PathVariable Long meterId, @CurrentUser AuthenticatedUser user) {
+        meterService.deleteMeter(user.getId(), meterId);
     }
 
     @PutMapping("/{meterId}/units")
     @ResponseStatus(HttpStatus.OK)
-    public void updateMeterUnits(@PathVariable Long meterId, @RequestBody smartcashpower.app.dto.UpdateUnitsRequest request) {
-        meterService.updateMeterUnits(meterId, request.getCurrentUnits(), request.getUsedUnits());
+    public void updateMeterUnits(@PathVariable Long meterId, @RequestBody UpdateUnitsRequest request) {
+        meterService.updateMeterUnits(meterId, request.getUsedUnits());
+    }
+
+    @PutMapping("/units")
+    @ResponseStatus(HttpStatus.OK)
+    public void updateMeterUnitsBatch(@RequestBody List<UpdateUnitsRequest> requests, @CurrentUser AuthenticatedUser user) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BATCH_SIZE + " readings per batch");
+        }
+        meterService.updateMeterUnitsBatch(user.getId(), requests);
     }
 }
@@ -1,45 +1,78 @@
 package smartcashpower.app.controller;
 
+import smartcashpower.app.config.AuthenticatedUser;
+import smartcashpower.app.config.CurrentUser;
+import smartcashpower.app.dto.PurchaseStatusResponse;
+import smartcashpower.app.dto.TransactionHistoryPage;
 import smartcashpower.app.dto.TransactionInitiationRequest;
 import smartcashpower.app.dto.TransactionResponse;
-import smartcashpower.app.model.User;
-import smartcashpower.app.repository.UserRepository;
+import smartcashpower.app.service.PurchaseIdempotencyService;
+import smartcashpower.app.service.PurchaseMetrics;
 import smartcashpower.app.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/v1/transactions")
 public class TransactionController {
 
     private final TransactionService transactionService;
-    private final UserRepository userRepository;
+    private final PurchaseIdempotencyService purchaseIdempotencyService;
+    private final PurchaseMetrics purchaseMetrics;
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
     @Autowired
-    public TransactionController(TransactionService transactionService, UserRepository userRepository) {
+    public TransactionController(TransactionService transactionService,
+                                 PurchaseIdempotencyService purchaseIdempotencyService,
+                                 PurchaseMetrics purchaseMetrics) {
         this.transactionService = transactionService;
-        this.userRepository = userRepository;
+        this.purchaseIdempotencyService = purchaseIdempotencyService;
+        this.purchaseMetrics = purchaseMetrics;
     }
 
-    private Integer getCurrentUserId(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found with email: " + email));
-        return user.getId().intValue();
+    @PostMapping("/purchase")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public TransactionResponse initiatePurchase(@RequestBody TransactionInitiationRequest request,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                @CurrentUser AuthenticatedUser user) {
+        Long userId = user.getId();
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        // Timed here rather than in the service so the commit is included.
+        long start = System.nanoTime();
+        try {
+            if (idempotencyKey == null) {
+                return transactionService.initiatePurchase(userId, request);
+            }
+            return purchaseIdempotencyService.execute(userId, idempotencyKey,
+                    PurchaseIdempotencyService.fingerprint(request),
+                    () -> transactionService.initiatePurchase(userId, request, idempotencyKey));
+        } finally {
+            purchaseMetrics.recordInitiateLatency(System.nanoTime() - start);
+        }
     }
 
-    @PostMapping("/purchase")
-    @ResponseStatus(HttpStatus.CREATED)
-    public TransactionResponse initiatePurchase(@RequestBody TransactionInitiationRequest request, Authentication authentication) {
-        return transactionService.initiatePurchase(getCurrentUserId(authentication), request);
+    @GetMapping("/{transactionReference}/status")
+    public PurchaseStatusResponse getPurchaseStatus(@PathVariable String transactionReference, @CurrentUser AuthenticatedUser user) {
+        return transactionService.getPurchaseStatus(user.getId(), transactionReference);
     }
 
     @GetMapping("/history")
-    public List<TransactionResponse> getTransactionHistory(Authentication authentication) {
-        return transactionService.getTransactionHistory(getCurrentUserId(authentication));
+    public TransactionHistoryPage getTransactionHistory(@RequestParam(required = false) Long meterId,
+                                                        @RequestParam(required = false) String status,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "20") int limit,
+                                                        @CurrentUser AuthenticatedUser user) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        return transactionService.getTransactionHistory(user.getId(), meterId, status, cursor, limit);
     }
 }
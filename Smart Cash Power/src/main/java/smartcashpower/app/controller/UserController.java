@@ -1,24 +1,40 @@
 package smartcashpower.app.controller;
 
+import smartcashpower.app.config.AuthenticatedUser;
+import smartcashpower.app.config.CurrentUser;
+import smartcashpower.app.config.JwtTokenService;
 import smartcashpower.app.dto.UserRegistrationRequest;
 import smartcashpower.app.dto.UserResponse;
 import smartcashpower.app.model.User;
+import smartcashpower.app.service.CustomUserDetailsService;
 import smartcashpower.app.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 public class UserController {
 
     private final UserService userService;
+    private final JwtTokenService jwtTokenService;
+    private final CustomUserDetailsService customUserDetailsService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JwtTokenService jwtTokenService,
+                          CustomUserDetailsService customUserDetailsService) {
         this.userService = userService;
+        this.jwtTokenService = jwtTokenService;
+        this.customUserDetailsService = customUserDetailsService;
+    }
+
+    private TokenResponse issueTokens(AuthenticatedUser user) {
+        return new TokenResponse(jwtTokenService.issueAccessToken(user), jwtTokenService.issueRefreshToken(user),
+                jwtTokenService.getAccessTtlSeconds());
     }
 
     @PostMapping("/register")
@@ -48,8 +64,9 @@ public class UserController {
         try {
             User user = userService.authenticateUser(loginRequest.getEmail(), loginRequest.getPassword());
             if (user != null) {
-                // In a real app, you'd generate a JWT token here
-                // For now, we'll return user data
+                if (!user.isActive()) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Account is blocked");
+                }
                 UserResponse response = new UserResponse();
                 response.setUserId(user.getId());
                 response.setEmail(user.getEmail());
@@ -57,11 +74,8 @@ public class UserController {
                 response.setFullName(user.getFullName());
                 response.setRole(user.getRole());
                 response.setCreatedAt(user.getCreatedAt());
-                
-                // Mock token - in production, use JWT
-                String mockToken = "mock-jwt-token-" + user.getId();
-                
-                return ResponseEntity.ok().body(new LoginResponse(mockToken, response));
+
+                return ResponseEntity.ok().body(new LoginResponse(issueTokens(AuthenticatedUser.from(user)), response));
             } else {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
             }
@@ -70,12 +84,30 @@ public class UserController {
         }
     }
 
+    /**
+     * Exchanges a refresh token for a new token pair. The user is re-read from the database here,
+     * so a blocked or deleted account, or a token issued before a password change, cannot keep
+     * itself signed in.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        Optional<AuthenticatedUser> claims = request.getRefreshToken() == null ? Optional.empty()
+                : jwtTokenService.verify(request.getRefreshToken(), JwtTokenService.REFRESH);
+        if (claims.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+        try {
+            AuthenticatedUser user = customUserDetailsService.loadUserForRefresh(claims.get().getId(),
+                    claims.get().getTokenVersion());
+            return ResponseEntity.ok(issueTokens(user));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+    }
+
     @PutMapping("/profile")
-    public ResponseEntity<UserResponse> updateProfile(@RequestBody UserRegistrationRequest request, Authentication authentication) {
-        String email = authentication.getName();
-        User current = userService.findUserByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
-        User updated = userService.updateProfile(current.getId(), request.getFullName(), request.getPhoneNumber());
+    public ResponseEntity<UserResponse> updateProfile(@RequestBody UserRegistrationRequest request, @CurrentUser AuthenticatedUser user) {
+        User updated = userService.updateProfile(user.getId(), request.getFullName(), request.getPhoneNumber());
 
         UserResponse response = new UserResponse();
         response.setUserId(updated.getId());
@@ -89,12 +121,10 @@ public class UserController {
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<Void> changePassword(@RequestBody ChangePasswordRequest request, Authentication authentication) {
-        String email = authentication.getName();
-        User current = userService.findUserByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
-        userService.changePassword(current.getId(), request.getCurrentPassword(), request.getNewPassword());
-        return ResponseEntity.ok().build();
+    public ResponseEntity<TokenResponse> changePassword(@RequestBody ChangePasswordRequest request, @CurrentUser AuthenticatedUser user) {
+        User updated = userService.changePassword(user.getId(), request.getCurrentPassword(), request.getNewPassword());
+        // Tokens issued before the change are now revoked; hand this session a fresh pair.
+        return ResponseEntity.ok(issueTokens(AuthenticatedUser.from(updated)));
     }
 
     @PostMapping("/forgot-password")
@@ -126,21 +156,49 @@ public class UserController {
         public void setPassword(String password) { this.password = password; }
     }
     
-    private static class LoginResponse {
-        private String token;
+    private static class LoginResponse extends TokenResponse {
         private UserResponse user;
         
-        public LoginResponse(String token, UserResponse user) {
-            this.token = token;
+        public LoginResponse(TokenResponse tokens, UserResponse user) {
+            super(tokens.getToken(), tokens.getRefreshToken(), tokens.getExpiresIn());
             this.user = user;
         }
         
-        public String getToken() { return token; }
-        public void setToken(String token) { this.token = token; }
         public UserResponse getUser() { return user; }
         public void setUser(UserResponse user) { this.user = user; }
     }
 
+    public static class TokenResponse {
+        private String token;
+        private String refreshToken;
+        private long expiresIn;
+
+        public TokenResponse(String token, String refreshToken, long expiresIn) {
+            this.token = token;
+            this.refreshToken = refreshToken;
+            this.expiresIn = expiresIn;
+        }
+
+        public String getToken() { return token; }
+        public void setToken(String token) { this.token = token; }
+        public String getRefreshToken() { return refreshToken; }
+        public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+        public long getExpiresIn() { return expiresIn; }
+        public void setExpiresIn(long expiresIn) { this.expiresIn = expiresIn; }
+    }
+
+    public static class RefreshRequest {
+        private String refreshToken;
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        public void setRefreshToken(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
+    }
+
     public static class ChangePasswordRequest {
         private String currentPassword;
         private String newPassword;
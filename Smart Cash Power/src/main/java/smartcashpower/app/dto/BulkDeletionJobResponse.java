@@ -0,0 +1,24 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeletionJobResponse {
+    private String jobId;
+    private String status; // QUEUED, RUNNING, COMPLETED
+    private int metersRequested;
+    private int usersRequested;
+    private int metersDeleted;
+    private int usersDeleted;
+    private long transactionsDeleted;
+    private Map<String, String> failures; // "meter:<id>" or "user:<id>" -> reason
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,11 @@
+package smartcashpower.app.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkDeletionRequest {
+    private List<Long> meterIds;
+    private List<Long> userIds;
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import smartcashpower.app.model.Meter;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,17 +18,14 @@ public class MeterDetailDTO {
     private String ownerEmail;
     private String ownerFullName;
 
-    public static MeterDetailDTO fromMeter(Meter meter) {
-        if (meter == null) {
-            return null;
-        }
-        return new MeterDetailDTO(
-                meter.getId(),
-                meter.getMeterNumber(),
-                meter.getCurrentUnits(),
-                meter.getActive(),
-                meter.getUser() != null ? meter.getUser().getEmail() : "N/A",
-                meter.getUser() != null ? meter.getUser().getFullName() : "N/A"
-        );
+    /**
+     * Used by the admin meter listing query. The balance is projected to now from the stored
+     * columns, exactly as {@link Meter#currentUnitsAt} does for a loaded meter.
+     */
+    public MeterDetailDTO(Long id, String meterNumber, Float currentUnits, Float consumptionRate,
+                          LocalDateTime lastSettledAt, Boolean active, String ownerEmail, String ownerFullName) {
+        this(id, meterNumber,
+                currentUnits - Meter.unsettledConsumption(currentUnits, consumptionRate, lastSettledAt, LocalDateTime.now()),
+                active, ownerEmail, ownerFullName);
     }
 }
@@ -0,0 +1,39 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import smartcashpower.app.model.Meter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A meter's balance as of {@code asOf}. Clients can keep the display live by draining
+ * {@code consumptionRate} units per second from that point without calling back.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeterResponse {
+    private Long id;
+    private String meterNumber;
+    private Float currentUnits;
+    private Float usedUnits;
+    private Boolean active;
+    private Float consumptionRate;
+    private LocalDateTime asOf;
+    private String tariffCategory;
+
+    public static MeterResponse fromMeter(Meter meter, LocalDateTime now) {
+        return new MeterResponse(
+                meter.getId(),
+                meter.getMeterNumber(),
+                meter.currentUnitsAt(now),
+                meter.usedUnitsAt(now),
+                meter.getActive(),
+                meter.getConsumptionRate(),
+                now,
+                meter.getTariffCategory()
+        );
+    }
+}
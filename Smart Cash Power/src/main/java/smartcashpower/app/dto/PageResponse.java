@@ -0,0 +1,24 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * A page of results for the admin tables. There is deliberately no total: counting every matching
+ * row would make each page cost grow with the table, so clients page forward while {@code hasNext}.
+ */
+@Data
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private boolean hasNext;
+
+    public static <T> PageResponse<T> from(Slice<T> slice) {
+        return new PageResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext());
+    }
+}
@@ -0,0 +1,27 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderHealthResponse {
+    private String provider;
+    private String circuitState; // CLOSED, HALF_OPEN, OPEN
+    private double failureRatePercent;
+    private int recordedCalls;
+    private int inFlight;
+    private int maxConcurrentCalls;
+    private Map<String, Long> rejections; // CIRCUIT_OPEN, BULKHEAD_FULL, TIMEOUT -> count since start
+    private Double latencyEwmaMillis; // mobile money providers only
+    private Double errorRateEwma;
+
+    public ProviderHealthResponse(String provider, String circuitState, double failureRatePercent, int recordedCalls,
+                                  int inFlight, int maxConcurrentCalls, Map<String, Long> rejections) {
+        this(provider, circuitState, failureRatePercent, recordedCalls, inFlight, maxConcurrentCalls, rejections, null, null);
+    }
+}
@@ -0,0 +1,40 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseMetricsResponse {
+    private WindowCounts accepted;
+    private Map<String, WindowCounts> byFinalStatus;
+    private Map<String, WindowCounts> byProvider;
+    private Map<String, WindowCounts> byAmount;
+    private Latency initiateLatency;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WindowCounts {
+        private long total;
+        private long last1m;
+        private long last5m;
+        private long last15m;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Latency {
+        private long count;
+        private double meanMillis;
+        private double p50Millis;
+        private double p95Millis;
+        private double p99Millis;
+        private double maxMillis;
+    }
+}
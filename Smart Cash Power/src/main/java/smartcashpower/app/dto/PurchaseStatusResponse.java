@@ -0,0 +1,41 @@
+package smartcashpower.app.dto;
+
+import smartcashpower.app.model.Payment;
+import smartcashpower.app.model.Transaction;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class PurchaseStatusResponse {
+
+    private Integer transactionId;
+    private String referenceNumber;
+    private String meterNumber;
+    private Float amountPaid;
+    private Float unitsPurchased;
+    private String currentStatus;
+    private String paymentStatus;
+    private String paymentMessage;
+    private LocalDateTime transactionDate;
+    private boolean completed;
+
+    public PurchaseStatusResponse(Transaction transaction) {
+        this.transactionId = transaction.getTransactionId();
+        this.referenceNumber = transaction.getTransactionReference();
+        this.meterNumber = transaction.getMeter() != null ? transaction.getMeter().getMeterNumber() : null;
+        this.amountPaid = transaction.getAmount();
+        this.unitsPurchased = transaction.getUnitsPurchased();
+        this.currentStatus = transaction.getStatus();
+        this.transactionDate = transaction.getTransactionDate();
+        Payment payment = transaction.getPayment();
+        if (payment != null) {
+            this.paymentStatus = payment.getPaymentStatus();
+            this.paymentMessage = payment.getResponseMessage();
+        }
+        this.completed = "SUCCESS".equals(currentStatus)
+                || "FAILED".equals(currentStatus)
+                || "REG_FAILED".equals(currentStatus)
+                || "DEAD_LETTER".equals(currentStatus);
+    }
+}
@@ -0,0 +1,30 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationJobResponse {
+    private String jobId;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String provider;
+    private LocalDate settlementDate;
+    private String fileName;
+    private long fileRows;
+    private long paymentsScanned;
+    private long matched;
+    private Map<String, Long> mismatchCounts;
+    private List<ReconciliationMismatch> mismatches; // the first reconciliation.max-reported-mismatches
+    private String reportFile; // every mismatch, as CSV
+    private String failure;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,20 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationMismatch {
+    private String type; // MISSING_IN_FILE, MISSING_IN_DB, AMOUNT, STATUS, DUPLICATE_IN_FILE, DUPLICATE_IN_DB, MALFORMED_ROW
+    private String paymentReference;
+    private BigDecimal fileAmount;
+    private BigDecimal paymentAmount;
+    private String fileStatus;
+    private String paymentStatus;
+    private String detail;
+}
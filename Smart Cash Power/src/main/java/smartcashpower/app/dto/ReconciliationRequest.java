@@ -0,0 +1,12 @@
+package smartcashpower.app.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class ReconciliationRequest {
+    private String provider; // mobile money client id, e.g. "mtn"
+    private LocalDate settlementDate;
+    private String fileName; // relative to reconciliation.settlement-dir
+}
@@ -0,0 +1,26 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Transaction totals for one month (or one year, when {@code month} is null), provider and status.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueRollupResponse {
+    private Integer year;
+    private Integer month;
+    private String provider;
+    private String status;
+    private Long transactionCount;
+    private Double amountTotal;
+    private Double unitsTotal;
+
+    public RevenueRollupResponse(Integer year, String provider, String status,
+                                 Long transactionCount, Double amountTotal, Double unitsTotal) {
+        this(year, null, provider, status, transactionCount, amountTotal, unitsTotal);
+    }
+}
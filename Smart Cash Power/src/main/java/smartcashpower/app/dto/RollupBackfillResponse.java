@@ -0,0 +1,16 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupBackfillResponse {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int rollupRows;
+}
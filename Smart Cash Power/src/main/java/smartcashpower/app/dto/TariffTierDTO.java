@@ -0,0 +1,14 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TariffTierDTO {
+    private String category;
+    private Float fromUnits; // units already bought this month at which the tier starts
+    private Float pricePerUnit; // RWF
+}
@@ -0,0 +1,17 @@
+package smartcashpower.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a user's transaction history, newest first. Pass {@code nextCursor} back as
+ * {@code cursor} to fetch the following page; it is {@code null} on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class TransactionHistoryPage {
+    private List<TransactionResponse> items;
+    private String nextCursor;
+}
@@ -1,11 +1,13 @@
 package smartcashpower.app.dto;
 
 import smartcashpower.app.model.Transaction;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Data
+@AllArgsConstructor
 public class TransactionResponse {
 
     private Integer transactionId;
@@ -1,10 +1,19 @@
 package smartcashpower.app.dto;
 
 public class UpdateUnitsRequest {
+    private Long meterId; // Only used by the batch endpoint
     private Float currentUnits;
     private Float usedUnits;
 
     // Getters and Setters
+    public Long getMeterId() {
+        return meterId;
+    }
+
+    public void setMeterId(Long meterId) {
+        this.meterId = meterId;
+    }
+
     public Float getCurrentUnits() {
         return currentUnits;
     }
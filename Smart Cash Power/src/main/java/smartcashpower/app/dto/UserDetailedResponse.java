@@ -18,4 +18,12 @@ public class UserDetailedResponse {
     private LocalDateTime createdAt;
     private boolean isActive;
     private long meterCount; // To include the count of registered Meters
+
+    /**
+     * Used by the admin listing query, which reads users and their meter counts in one statement.
+     */
+    public UserDetailedResponse(Long id, String email, String fullName, String phoneNumber,
+                                LocalDateTime createdAt, Boolean active, Long meterCount) {
+        this(id.intValue(), email, email, fullName, phoneNumber, createdAt, active, meterCount);
+    }
 }
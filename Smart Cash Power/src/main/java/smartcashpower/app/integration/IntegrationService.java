@@ -1,25 +1,216 @@
 package smartcashpower.app.integration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
+import smartcashpower.app.dto.ProviderHealthResponse;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls to the MoMo and REG providers. Every call is timed as {@code smartcash.integration.requests},
+ * tagged with the provider, the operation and its outcome ({@code success}, {@code failure} for a
+ * negative provider answer, {@code rejected} when the {@link ProviderGuard} refused or abandoned
+ * it, {@code error} when the call threw).
+ * <p>
+ * Each provider has its own guard, so a slow provider cannot use up the capacity the others need.
+ * REG is configured under {@code integration.reg.*}. Mobile money providers share
+ * {@code integration.momo.*}, overridable per provider under {@code integration.momo.<id>.*}, and
+ * are picked per payment by the {@link MobileMoneyRouter}.
+ */
 @Service
 public class IntegrationService {
 
+    private static final String REQUEST_TIMER = "smartcash.integration.requests";
+
+    private final MeterRegistry meterRegistry;
+    private final MobileMoneyRouter mobileMoneyRouter;
+    private final ProviderGuard regGuard;
+    // Registered up front, so a call does not build tags or look its timer up in the registry.
+    private final Map<String, RequestTimers> verifyPaymentTimers;
+    private final RequestTimers loadUnitsTimers;
+    private final RequestTimers loadUnitsBatchTimers;
+
+    @Autowired
+    public IntegrationService(MeterRegistry meterRegistry, Environment environment,
+                              List<MobileMoneyClient> mobileMoneyClients) {
+        this.meterRegistry = meterRegistry;
+        ExecutorService callExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("integration-", 0).factory());
+        List<MobileMoneyRouter.Route> routes = new ArrayList<>(mobileMoneyClients.size());
+        Map<String, RequestTimers> verifyTimers = new HashMap<>();
+        for (MobileMoneyClient client : mobileMoneyClients) {
+            verifyTimers.put(client.id(), new RequestTimers(meterRegistry, client.id(), "verify_payment"));
+            ProviderGuard.Settings settings = ProviderGuard.Settings.from(environment,
+                    "integration.momo." + client.id(), "integration.momo");
+            routes.add(new MobileMoneyRouter.Route(client, new ProviderGuard(client.id(), settings, callExecutor, meterRegistry)));
+        }
+        this.mobileMoneyRouter = new MobileMoneyRouter(routes,
+                environment.getProperty("integration.momo.routing.ewma-alpha", Double.class, 0.2),
+                environment.getProperty("integration.momo.routing.max-error-rate", Double.class, 0.5),
+                TimeUnit.MILLISECONDS.toNanos(environment.getProperty("integration.momo.routing.error-half-life-ms", Long.class, 10000L)));
+        this.regGuard = new ProviderGuard("reg", ProviderGuard.Settings.from(environment, "integration.reg"),
+                callExecutor, meterRegistry);
+        this.verifyPaymentTimers = Map.copyOf(verifyTimers);
+        this.loadUnitsTimers = new RequestTimers(meterRegistry, "reg", "load_units");
+        this.loadUnitsBatchTimers = new RequestTimers(meterRegistry, "reg", "load_units_batch");
+    }
+
+    /**
+     * Verifies a payment with the provider picked by the router for {@code request.providerName}.
+     * If that provider's guard refuses the call, it is sent once to the next healthiest provider;
+     * a call that was sent and then timed out or failed is not, since the provider may have acted on it.
+     * The response names the provider that answered.
+     */
     public MoMoResponse verifyMoMoPayment(MoMoRequest request) {
-        // Mock implementation
-        MoMoResponse response = new MoMoResponse();
-        // Simulate success most of the time
-        if (Math.random() > 0.1) { // 90% success rate
-            response.setSuccessful(true);
-            response.setMessage("Payment successful");
-        } else {
-            response.setSuccessful(false);
-            response.setMessage("Payment failed at MoMo provider");
+        MobileMoneyRouter.Route route = mobileMoneyRouter.select(request.getProviderName());
+        try {
+            return verifyWith(route, request);
+        } catch (ProviderUnavailableException e) {
+            if (e.getReason() == ProviderGuard.Rejection.TIMEOUT) {
+                throw e;
+            }
+            MobileMoneyRouter.Route alternative = mobileMoneyRouter.failover(route);
+            if (alternative == null) {
+                throw e;
+            }
+            return verifyWith(alternative, request);
+        }
+    }
+
+    /**
+     * The id of the mobile money provider a customer's provider name refers to, matched the way
+     * the router matches it, or null for a name no provider claims.
+     */
+    public String resolveMoMoProvider(String providerName) {
+        return mobileMoneyRouter.providerId(providerName);
+    }
+
+    private MoMoResponse verifyWith(MobileMoneyRouter.Route route, MoMoRequest request) {
+        MobileMoneyClient client = route.client();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long start = System.nanoTime();
+        String outcome = "error";
+        boolean sent = true;
+        try {
+            MoMoResponse response = route.guard().call(() -> callMoMo(client, request));
+            response.setProvider(client.id());
+            outcome = response.isSuccessful() ? "success" : "failure";
+            return response;
+        } catch (ProviderUnavailableException e) {
+            outcome = "rejected";
+            sent = e.getReason() == ProviderGuard.Rejection.TIMEOUT;
+            throw e;
+        } finally {
+            // A refused call says nothing about the provider's latency; only calls that were sent are averaged.
+            if (sent) {
+                boolean failed = "error".equals(outcome) || "rejected".equals(outcome);
+                mobileMoneyRouter.record(route, System.nanoTime() - start, failed);
+            }
+            sample.stop(verifyPaymentTimers.get(client.id()).forOutcome(outcome));
         }
-        return response;
     }
 
     public REGUnitLoadResponse loadUnitsToMeter(REGUnitLoadRequest request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            REGUnitLoadResponse response = regGuard.call(() -> callReg(request));
+            outcome = response.isSuccessful() ? "success" : "failure";
+            return response;
+        } catch (ProviderUnavailableException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(loadUnitsTimers.forOutcome(outcome));
+        }
+    }
+
+    /**
+     * Loads units for several meters in one round trip. Responses are returned in request order.
+     * The round trip is timed once; individual loads are not.
+     */
+    public List<REGUnitLoadResponse> loadUnitsToMeters(List<REGUnitLoadRequest> requests) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            List<REGUnitLoadResponse> responses = regGuard.call(() -> callRegBatch(requests));
+            outcome = "success";
+            return responses;
+        } catch (ProviderUnavailableException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(loadUnitsBatchTimers.forOutcome(outcome));
+        }
+    }
+
+    /**
+     * Whether at least one mobile money provider's circuit breaker currently lets calls through.
+     */
+    public boolean isMoMoAvailable() {
+        for (MobileMoneyRouter.Route route : mobileMoneyRouter.routes()) {
+            if (route.guard().isCallPermitted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether REG calls are currently let through its circuit breaker.
+     */
+    public boolean isRegAvailable() {
+        return regGuard.isCallPermitted();
+    }
+
+    /**
+     * Guard state for every provider, with the router's live averages for the mobile money ones.
+     */
+    public List<ProviderHealthResponse> getProviderHealth() {
+        List<ProviderHealthResponse> health = new ArrayList<>();
+        long now = System.nanoTime();
+        for (MobileMoneyRouter.Route route : mobileMoneyRouter.routes()) {
+            ProviderHealthResponse snapshot = route.guard().snapshot();
+            snapshot.setLatencyEwmaMillis(route.latencyNanos() / 1_000_000.0);
+            snapshot.setErrorRateEwma(mobileMoneyRouter.errorRate(route, now));
+            health.add(snapshot);
+        }
+        health.add(regGuard.snapshot());
+        return health;
+    }
+
+    /**
+     * The mobile money round trip itself, without instrumentation. Overridden by the load test stub.
+     */
+    protected MoMoResponse callMoMo(MobileMoneyClient client, MoMoRequest request) {
+        return client.verifyPayment(request);
+    }
+
+    /**
+     * The REG bulk round trip, without instrumentation. Overridden by the load test stub.
+     */
+    protected List<REGUnitLoadResponse> callRegBatch(List<REGUnitLoadRequest> requests) {
+        // Mock implementation
+        List<REGUnitLoadResponse> responses = new ArrayList<>(requests.size());
+        for (REGUnitLoadRequest request : requests) {
+            responses.add(callReg(request));
+        }
+        return responses;
+    }
+
+    /**
+     * The REG round trip for one meter, without instrumentation. Overridden by the load test stub.
+     */
+    protected REGUnitLoadResponse callReg(REGUnitLoadRequest request) {
         // Mock implementation
         REGUnitLoadResponse response = new REGUnitLoadResponse();
         // Simulate success most of the time
@@ -32,4 +223,39 @@ public class IntegrationService {
         }
         return response;
     }
+
+    /**
+     * The {@code smartcash.integration.requests} timers of one provider operation, one per outcome.
+     */
+    private static final class RequestTimers {
+
+        private final Timer success;
+        private final Timer failure;
+        private final Timer rejected;
+        private final Timer error;
+
+        RequestTimers(MeterRegistry meterRegistry, String provider, String operation) {
+            this.success = register(meterRegistry, provider, operation, "success");
+            this.failure = register(meterRegistry, provider, operation, "failure");
+            this.rejected = register(meterRegistry, provider, operation, "rejected");
+            this.error = register(meterRegistry, provider, operation, "error");
+        }
+
+        Timer forOutcome(String outcome) {
+            return switch (outcome) {
+                case "success" -> success;
+                case "failure" -> failure;
+                case "rejected" -> rejected;
+                default -> error;
+            };
+        }
+
+        private static Timer register(MeterRegistry meterRegistry, String provider, String operation, String outcome) {
+            return Timer.builder(REQUEST_TIMER)
+                    .tag("provider", provider)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
 }
@@ -7,4 +7,5 @@ public class MoMoRequest {
     private String phoneNumber;
     private float amount;
     private String transactionReference;
+    private String providerName; // as chosen by the customer; routing may pick another
 }
@@ -6,4 +6,5 @@ import lombok.Data;
 public class MoMoResponse {
     private boolean successful;
     private String message;
+    private String provider; // id of the client that answered; routing may pick another than requested
 }
@@ -0,0 +1,23 @@
+package smartcashpower.app.integration;
+
+import java.util.List;
+
+/**
+ * Client for one mobile money provider. Every bean of this type is registered with the
+ * {@link MobileMoneyRouter} when the application starts; adding a provider means adding a bean.
+ */
+public interface MobileMoneyClient {
+
+    /**
+     * Short, stable id used in metric tags and settings ({@code integration.momo.<id>.*}).
+     */
+    String id();
+
+    /**
+     * The provider names customers pick, as stored in {@code Payment.providerName}. Matched
+     * case-insensitively.
+     */
+    List<String> names();
+
+    MoMoResponse verifyPayment(MoMoRequest request);
+}
@@ -0,0 +1,23 @@
+package smartcashpower.app.integration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * The mobile money providers customers can pay with. Both are mocks for now.
+ */
+@Configuration
+public class MobileMoneyClients {
+
+    @Bean
+    public MobileMoneyClient mtnMoMoClient() {
+        return new MockMobileMoneyClient("mtn", List.of("MTN MoMo", "MTN", "MTN Mobile Money"), 0.9);
+    }
+
+    @Bean
+    public MobileMoneyClient airtelMoneyClient() {
+        return new MockMobileMoneyClient("airtel", List.of("Airtel Money", "Airtel"), 0.9);
+    }
+}
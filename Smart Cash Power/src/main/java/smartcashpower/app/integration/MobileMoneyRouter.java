@@ -0,0 +1,189 @@
+package smartcashpower.app.integration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the mobile money provider for a payment.
+ * <p>
+ * Each provider's latency and error rate are tracked as exponentially weighted moving averages,
+ * updated lock-free after every call. A payment goes to the provider the customer chose while that
+ * provider is eligible: its breaker lets calls through and its error average is below
+ * {@code maxErrorRate}. Otherwise it goes to the eligible provider with the lowest expected time
+ * per successful call, {@code latency / (1 - errorRate)}. The error average halves every
+ * {@code errorHalfLifeNanos} without calls, so a provider that lost its traffic that way is tried
+ * again. Routing reads only in-memory state and takes no lock: breaker states are read through
+ * {@link ProviderGuard#isRoutable} and the decay comes from a table of precomputed factors. The
+ * provider table is built once and never changes.
+ */
+final class MobileMoneyRouter {
+
+    // The error average decays in steps of 1/16 half-life and counts as zero after 16 half-lives.
+    private static final int DECAY_STEPS_PER_HALF_LIFE = 16;
+    private static final double[] DECAY_FACTORS = new double[DECAY_STEPS_PER_HALF_LIFE * 16];
+
+    static {
+        for (int i = 0; i < DECAY_FACTORS.length; i++) {
+            DECAY_FACTORS[i] = Math.pow(0.5, (double) i / DECAY_STEPS_PER_HALF_LIFE);
+        }
+    }
+
+    private final Route[] routes;
+    private final Map<String, Route> routesByName;
+    private final double alpha;
+    private final double maxErrorRate;
+    private final long decayStepNanos;
+
+    MobileMoneyRouter(List<Route> routes, double alpha, double maxErrorRate, long errorHalfLifeNanos) {
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("No mobile money providers are configured");
+        }
+        this.routes = routes.toArray(Route[]::new);
+        this.alpha = alpha;
+        this.maxErrorRate = maxErrorRate;
+        this.decayStepNanos = Math.max(1, errorHalfLifeNanos / DECAY_STEPS_PER_HALF_LIFE);
+        Map<String, Route> byName = new HashMap<>();
+        for (Route route : routes) {
+            for (String name : route.client().names()) {
+                if (byName.put(normalize(name), route) != null) {
+                    throw new IllegalStateException("Provider name " + name + " is claimed by more than one client");
+                }
+            }
+        }
+        this.routesByName = Map.copyOf(byName);
+    }
+
+    /**
+     * The customer's provider if it is eligible, else the healthiest eligible one. When none is
+     * eligible the customer's provider (or the first one) is returned and its guard decides.
+     */
+    Route select(String providerName) {
+        Route chosen = providerName == null ? null : routesByName.get(normalize(providerName));
+        if (chosen != null && isEligible(chosen, System.nanoTime())) {
+            return chosen;
+        }
+        Route healthiest = healthiestExcept(chosen);
+        if (healthiest != null) {
+            return healthiest;
+        }
+        return chosen != null ? chosen : routes[0];
+    }
+
+    /**
+     * The id of the client that claims {@code providerName}, or null if none does.
+     */
+    String providerId(String providerName) {
+        Route route = providerName == null ? null : routesByName.get(normalize(providerName));
+        return route == null ? null : route.client().id();
+    }
+
+    /**
+     * The healthiest eligible provider other than {@code failed}, or null if there is none.
+     */
+    Route failover(Route failed) {
+        return healthiestExcept(failed);
+    }
+
+    List<Route> routes() {
+        return List.of(routes);
+    }
+
+    private Route healthiestExcept(Route excluded) {
+        long now = System.nanoTime();
+        Route best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Route route : routes) {
+            if (route == excluded || !isEligible(route, now)) {
+                continue;
+            }
+            double score = route.latencyNanos() / (1.0 - Math.min(errorRate(route, now), 0.99));
+            if (score < bestScore) {
+                best = route;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private boolean isEligible(Route route, long now) {
+        return errorRate(route, now) < maxErrorRate && route.guard().isRoutable();
+    }
+
+    /**
+     * The error average, decayed for the time since the provider was last called.
+     */
+    double errorRate(Route route, long now) {
+        double rate = route.errorRate();
+        if (rate == 0.0) {
+            return 0.0;
+        }
+        long step = Math.max(0, (now - route.lastUpdateNanos()) / decayStepNanos);
+        return step >= DECAY_FACTORS.length ? 0.0 : rate * DECAY_FACTORS[(int) step];
+    }
+
+    void record(Route route, long nanos, boolean error) {
+        route.update(alpha, nanos, error);
+    }
+
+    private static String normalize(String providerName) {
+        return providerName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * One provider with its guard and live averages. The averages start at zero latency and zero
+     * errors, so a provider without history is tried before one that has proven slow.
+     */
+    static final class Route {
+
+        private final MobileMoneyClient client;
+        private final ProviderGuard guard;
+        private final AtomicLong latencyNanosBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+        private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+        private volatile long lastUpdateNanos = System.nanoTime();
+
+        Route(MobileMoneyClient client, ProviderGuard guard) {
+            this.client = client;
+            this.guard = guard;
+        }
+
+        MobileMoneyClient client() {
+            return client;
+        }
+
+        ProviderGuard guard() {
+            return guard;
+        }
+
+        double latencyNanos() {
+            return Double.longBitsToDouble(latencyNanosBits.get());
+        }
+
+        double errorRate() {
+            return Double.longBitsToDouble(errorRateBits.get());
+        }
+
+        long lastUpdateNanos() {
+            return lastUpdateNanos;
+        }
+
+        private void update(double alpha, long nanos, boolean error) {
+            blend(latencyNanosBits, alpha, nanos);
+            blend(errorRateBits, alpha, error ? 1.0 : 0.0);
+            lastUpdateNanos = System.nanoTime();
+        }
+
+        private static void blend(AtomicLong bits, double alpha, double sample) {
+            while (true) {
+                long current = bits.get();
+                double average = Double.longBitsToDouble(current);
+                long next = Double.doubleToRawLongBits(average + alpha * (sample - average));
+                if (bits.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package smartcashpower.app.integration;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mock provider that approves a fixed share of payments.
+ */
+public class MockMobileMoneyClient implements MobileMoneyClient {
+
+    private final String id;
+    private final List<String> names;
+    private final double successRate;
+
+    public MockMobileMoneyClient(String id, List<String> names, double successRate) {
+        this.id = id;
+        this.names = List.copyOf(names);
+        this.successRate = successRate;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public List<String> names() {
+        return names;
+    }
+
+    @Override
+    public MoMoResponse verifyPayment(MoMoRequest request) {
+        // Mock implementation
+        MoMoResponse response = new MoMoResponse();
+        if (ThreadLocalRandom.current().nextDouble() < successRate) {
+            response.setSuccessful(true);
+            response.setMessage("Payment successful");
+        } else {
+            response.setSuccessful(false);
+            response.setMessage("Payment failed at MoMo provider");
+        }
+        return response;
+    }
+}
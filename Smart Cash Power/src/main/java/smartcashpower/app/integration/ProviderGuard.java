@@ -0,0 +1,280 @@
+package smartcashpower.app.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import smartcashpower.app.dto.ProviderHealthResponse;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Failure isolation for one provider: a bulkhead, a call deadline and a circuit breaker.
+ * <p>
+ * The bulkhead bounds how many calls are in flight; a caller that cannot get a slot within
+ * {@code maxWaitMs} is rejected instead of queueing behind a slow provider. Each call runs on its
+ * own virtual thread and is abandoned (and interrupted) when it misses its deadline.
+ * <p>
+ * The breaker keeps the outcomes of the last {@code windowSize} calls. Once at least
+ * {@code minimumCalls} are recorded and the share of errors and timeouts reaches
+ * {@code failureRateThreshold} percent, it opens and every call fails fast. After {@code openMs}
+ * it lets {@code halfOpenCalls} probes through: if they all succeed it closes, otherwise it opens
+ * again. A negative answer from the provider is a successful call; only errors and timeouts count.
+ */
+public final class ProviderGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderGuard.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    public enum Rejection { CIRCUIT_OPEN, BULKHEAD_FULL, TIMEOUT }
+
+    private final String provider;
+    private final Settings settings;
+    private final ExecutorService callExecutor;
+    private final Semaphore bulkhead;
+    private final Map<Rejection, Counter> rejections = new EnumMap<>(Rejection.class);
+
+    // Breaker state; guarded by this. state and openedAtNanos are also read without the lock by isRoutable.
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private volatile State state = State.CLOSED;
+    private volatile long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    ProviderGuard(String provider, Settings settings, ExecutorService callExecutor, MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.settings = settings;
+        this.callExecutor = callExecutor;
+        this.bulkhead = new Semaphore(settings.maxConcurrentCalls());
+        this.window = new boolean[settings.windowSize()];
+        for (Rejection reason : Rejection.values()) {
+            rejections.put(reason, Counter.builder("smartcash.integration.rejections")
+                    .description("Provider calls refused or abandoned by the guard")
+                    .tag("provider", provider)
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("smartcash.integration.circuit.state", this, guard -> guard.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("smartcash.integration.in_flight", this, ProviderGuard::inFlight)
+                .description("Provider calls currently holding a bulkhead slot")
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} under the guard.
+     *
+     * @throws ProviderUnavailableException if the call was refused or missed its deadline
+     */
+    public <T> T call(Callable<T> call) {
+        if (!tryEnter()) {
+            throw reject(Rejection.CIRCUIT_OPEN);
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(settings.maxWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelProbe();
+            throw new ProviderUnavailableException(provider, Rejection.BULKHEAD_FULL, e);
+        }
+        if (!acquired) {
+            // Not the provider's fault; give back a probe slot without counting an outcome.
+            cancelProbe();
+            throw reject(Rejection.BULKHEAD_FULL);
+        }
+        Future<T> future = callExecutor.submit(call);
+        try {
+            T result = future.get(settings.timeoutMs(), TimeUnit.MILLISECONDS);
+            release(true);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            release(false);
+            throw reject(Rejection.TIMEOUT);
+        } catch (ExecutionException e) {
+            release(false);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(provider + " call failed", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            release(false);
+            throw new ProviderUnavailableException(provider, Rejection.TIMEOUT, e);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Whether a call would currently be let through the breaker. Lets batch callers skip claiming
+     * work they could not send.
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state()) {
+            case CLOSED -> true;
+            case HALF_OPEN -> probesStarted < settings.halfOpenCalls();
+            case OPEN -> false;
+        };
+    }
+
+    /**
+     * Lock-free variant of {@link #isCallPermitted} for the router, which asks on every payment:
+     * false only while the breaker is open and its open period has not passed. A half-open breaker
+     * counts as routable even if its probes are taken; the guard still refuses the call then.
+     */
+    public boolean isRoutable() {
+        State current = state;
+        return current != State.OPEN
+                || System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(settings.openMs());
+    }
+
+    public synchronized ProviderHealthResponse snapshot() {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejections.forEach((reason, counter) -> rejected.put(reason.name(), (long) counter.count()));
+        double failureRate = windowCount == 0 ? 0.0 : 100.0 * windowFailures / windowCount;
+        return new ProviderHealthResponse(provider, state().name(), failureRate, windowCount, inFlight(),
+                settings.maxConcurrentCalls(), rejected);
+    }
+
+    private int inFlight() {
+        return settings.maxConcurrentCalls() - bulkhead.availablePermits();
+    }
+
+    /**
+     * The current state, moving OPEN to HALF_OPEN once the open period has passed.
+     */
+    private synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(settings.openMs())) {
+            transition(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    private synchronized boolean tryEnter() {
+        switch (state()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probesStarted < settings.halfOpenCalls()) {
+                    probesStarted++;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private synchronized void cancelProbe() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    private synchronized void release(boolean successful) {
+        if (state == State.HALF_OPEN) {
+            if (!successful) {
+                transition(State.OPEN);
+            } else if (++probesSucceeded >= settings.halfOpenCalls()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call that started before the breaker opened; its outcome no longer matters.
+            return;
+        }
+        if (windowCount == window.length && window[windowIndex]) {
+            windowFailures--;
+        }
+        window[windowIndex] = !successful;
+        if (!successful) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+        if (windowCount >= settings.minimumCalls()
+                && windowFailures * 100.0 >= settings.failureRateThreshold() * windowCount) {
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State next) {
+        log.warn("{} circuit breaker {} -> {}", provider, state, next);
+        // The open time is published before the state, so a lock-free reader never pairs OPEN with a stale time.
+        if (next == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        state = next;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.CLOSED) {
+            Arrays.fill(window, false);
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    private ProviderUnavailableException reject(Rejection reason) {
+        rejections.get(reason).increment();
+        return new ProviderUnavailableException(provider, reason, null);
+    }
+
+    public record Settings(int maxConcurrentCalls, long maxWaitMs, long timeoutMs, int windowSize,
+                           int minimumCalls, double failureRateThreshold, long openMs, int halfOpenCalls) {
+
+        /**
+         * Reads {@code <prefix>.max-concurrent-calls}, {@code .max-wait-ms}, {@code .timeout-ms} and
+         * the {@code .breaker.*} settings, falling back to the defaults given here.
+         */
+        static Settings from(Environment environment, String prefix) {
+            return from(environment, prefix, prefix);
+        }
+
+        /**
+         * Same, but each setting under {@code prefix} falls back to the one under
+         * {@code fallbackPrefix} before the default; used for settings shared by several providers.
+         */
+        static Settings from(Environment environment, String prefix, String fallbackPrefix) {
+            return new Settings(
+                    property(environment, prefix, fallbackPrefix, ".max-concurrent-calls", Integer.class, 32),
+                    property(environment, prefix, fallbackPrefix, ".max-wait-ms", Long.class, 50L),
+                    property(environment, prefix, fallbackPrefix, ".timeout-ms", Long.class, 5000L),
+                    property(environment, prefix, fallbackPrefix, ".breaker.window-size", Integer.class, 50),
+                    property(environment, prefix, fallbackPrefix, ".breaker.minimum-calls", Integer.class, 20),
+                    property(environment, prefix, fallbackPrefix, ".breaker.failure-rate-threshold", Double.class, 50.0),
+                    property(environment, prefix, fallbackPrefix, ".breaker.open-ms", Long.class, 30000L),
+                    property(environment, prefix, fallbackPrefix, ".breaker.half-open-calls", Integer.class, 3));
+        }
+
+        private static <T> T property(Environment environment, String prefix, String fallbackPrefix, String key,
+                                      Class<T> type, T defaultValue) {
+            T value = environment.getProperty(prefix + key, type);
+            return value != null ? value : environment.getProperty(fallbackPrefix + key, type, defaultValue);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package smartcashpower.app.integration;
+
+import java.io.Serial;
+
+/**
+ * A provider call that was refused by its {@link ProviderGuard} or abandoned at its deadline. The
+ * provider may or may not have acted on an abandoned call.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+
+    private final String provider;
+    private final ProviderGuard.Rejection reason;
+
+    public ProviderUnavailableException(String provider, ProviderGuard.Rejection reason, Throwable cause) {
+        super(provider + " unavailable: " + reason, cause);
+        this.provider = provider;
+        this.reason = reason;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public ProviderGuard.Rejection getReason() {
+        return reason;
+    }
+}
@@ -6,4 +6,5 @@ import lombok.Data;
 public class REGUnitLoadRequest {
     private String meterNumber;
     private double units;
+    private String transactionReference; // Lets REG recognise a replayed load
 }
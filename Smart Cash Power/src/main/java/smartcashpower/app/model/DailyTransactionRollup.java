@@ -0,0 +1,55 @@
+package smartcashpower.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Running totals of the transactions dated on one day, per payment provider and current status.
+ * Rows are only written by the upserts in {@link smartcashpower.app.repository.DailyTransactionRollupRepository};
+ * the entity exists so the table is created with the schema and can be queried in JPQL.
+ */
+@Data
+@Entity
+@IdClass(DailyTransactionRollup.Key.class)
+@Table(name = "daily_transaction_rollups")
+public class DailyTransactionRollup {
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Column(nullable = false)
+    private String provider;
+
+    @Id
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "transaction_count", nullable = false)
+    private long transactionCount;
+
+    @Column(name = "amount_total", nullable = false)
+    private double amountTotal;
+
+    @Column(name = "units_total", nullable = false)
+    private double unitsTotal;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private LocalDate day;
+        private String provider;
+        private String status;
+    }
+}
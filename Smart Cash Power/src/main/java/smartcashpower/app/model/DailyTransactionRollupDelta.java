@@ -0,0 +1,45 @@
+package smartcashpower.app.model;
+
+import lombok.Data;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * A change to the {@link DailyTransactionRollup} totals that has not been folded into them yet.
+ * Purchases only ever append deltas, so concurrent purchases never wait on each other's rollup
+ * row; {@link smartcashpower.app.service.TransactionRollupService} folds them in the background.
+ * Rows are only written and deleted by native statements in
+ * {@link smartcashpower.app.repository.DailyTransactionRollupRepository}.
+ */
+@Data
+@Entity
+@Table(name = "daily_transaction_rollup_deltas",
+        indexes = @Index(name = "idx_daily_transaction_rollup_deltas_day", columnList = "day"))
+public class DailyTransactionRollupDelta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "daily_transaction_rollup_deltas_seq")
+    @SequenceGenerator(name = "daily_transaction_rollup_deltas_seq", sequenceName = "daily_transaction_rollup_deltas_seq",
+            allocationSize = 50)
+    @Column(name = "delta_id")
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private String provider;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "transaction_count", nullable = false)
+    private long transactionCount;
+
+    @Column(name = "amount_total", nullable = false)
+    private double amountTotal;
+
+    @Column(name = "units_total", nullable = false)
+    private double unitsTotal;
+}
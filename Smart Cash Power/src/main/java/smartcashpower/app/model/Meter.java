@@ -5,15 +5,22 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "meters")
+@Table(name = "meters", indexes = @Index(name = "idx_meters_user_id", columnList = "user_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Meter {
 
+    public static final float DEFAULT_CONSUMPTION_RATE = 0.002f; // units per second
+    public static final String DEFAULT_TARIFF_CATEGORY = "RESIDENTIAL";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meters_seq")
+    @SequenceGenerator(name = "meters_seq", sequenceName = "meters_seq", allocationSize = 50)
     @Column(name = "meter_id")
     private Long id;
 
@@ -29,8 +36,58 @@ public class Meter {
     @Column(nullable = false)
     private Boolean active = true;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
+
+    /**
+     * Units drawn per second. {@code currentUnits} and {@code usedUnits} are only exact as of
+     * {@code lastSettledAt}; the balance in between is derived from this rate.
+     */
+    @Column(name = "consumption_rate", nullable = false, columnDefinition = "real default 0.002")
+    private Float consumptionRate = DEFAULT_CONSUMPTION_RATE;
+
+    @Column(name = "last_settled_at")
+    private LocalDateTime lastSettledAt;
+
+    @Column(name = "tariff_category", nullable = false, columnDefinition = "varchar(32) default 'RESIDENTIAL'")
+    private String tariffCategory = DEFAULT_TARIFF_CATEGORY;
+
+    /**
+     * Units bought in {@code monthlyUnitsPeriod} (yyyyMM), which decides the tariff tier of the next
+     * purchase. A purchase in a later month starts again from zero.
+     */
+    @Column(name = "monthly_units", nullable = false, columnDefinition = "real default 0")
+    private Float monthlyUnits = 0.0f;
+
+    @Column(name = "monthly_units_period", nullable = false, columnDefinition = "integer default 0")
+    private Integer monthlyUnitsPeriod = 0;
+
+    /**
+     * Units consumed between the last settlement and {@code now}, never more than the settled balance.
+     */
+    public float unsettledConsumption(LocalDateTime now) {
+        return unsettledConsumption(currentUnits, consumptionRate, lastSettledAt, now);
+    }
+
+    /**
+     * Same projection for callers that read the columns without loading the entity.
+     */
+    public static float unsettledConsumption(float currentUnits, float consumptionRate,
+                                             LocalDateTime lastSettledAt, LocalDateTime now) {
+        if (lastSettledAt == null || !now.isAfter(lastSettledAt)) {
+            return 0.0f;
+        }
+        double seconds = Duration.between(lastSettledAt, now).toNanos() / 1_000_000_000.0;
+        return (float) Math.min(currentUnits, consumptionRate * seconds);
+    }
+
+    public float currentUnitsAt(LocalDateTime now) {
+        return currentUnits - unsettledConsumption(now);
+    }
+
+    public float usedUnitsAt(LocalDateTime now) {
+        return usedUnits + unsettledConsumption(now);
+    }
 }
 
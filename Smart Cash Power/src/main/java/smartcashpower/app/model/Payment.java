@@ -7,11 +7,14 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "payments")
+// Settlement reconciliation reads a provider's payments for one day in this order.
+@Table(name = "payments", indexes = @Index(name = "idx_payments_routed_provider_date_reference",
+        columnList = "routed_provider, payment_date, payment_reference"))
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Integer paymentId;
 
     @OneToOne
@@ -19,8 +22,9 @@ public class Payment {
     private Transaction transaction;
 
     private String providerName; // Mock for MobileMoneyProvider
+    private String routedProvider; // MobileMoneyClient id: the one picked at purchase, then the one that verified it
     private String paymentReference;
-    private String paymentStatus; // PENDING, SUCCESS, FAILED
+    private String paymentStatus; // PENDING, COMPLETED, FAILED
     private LocalDateTime paymentDate;
     private String confirmationCode;
     private String responseMessage;
@@ -0,0 +1,31 @@
+package smartcashpower.app.model;
+
+import lombok.Data;
+
+import jakarta.persistence.*;
+
+/**
+ * One tier of a customer category's tariff: from {@code fromUnits} units bought in a month, each
+ * further unit costs {@code pricePerUnit} RWF until the category's next tier starts.
+ */
+@Data
+@Entity
+@Table(name = "tariff_rules", uniqueConstraints = @UniqueConstraint(
+        name = "uk_tariff_rules_category_from_units", columnNames = {"category", "from_units"}))
+public class TariffRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tariff_rules_seq")
+    @SequenceGenerator(name = "tariff_rules_seq", sequenceName = "tariff_rules_seq", allocationSize = 50)
+    @Column(name = "tariff_rule_id")
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String category;
+
+    @Column(name = "from_units", nullable = false)
+    private Float fromUnits;
+
+    @Column(name = "price_per_unit", nullable = false)
+    private Float pricePerUnit;
+}
@@ -7,14 +7,22 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_user_date_id", columnList = "user_id, transaction_date, transaction_id"),
+        @Index(name = "idx_transactions_meter_date_id", columnList = "meter_id, transaction_date, transaction_id"),
+        @Index(name = "idx_transactions_date_id", columnList = "transaction_date, transaction_id"),
+        @Index(name = "idx_transactions_status_next_retry", columnList = "status, next_retry_at"),
+        // Status polls and idempotent replays look purchases up by the reference handed to the client.
+        @Index(name = "idx_transactions_reference", columnList = "transaction_reference", unique = true)
+})
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Integer transactionId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -25,9 +33,16 @@ public class Transaction {
     private Float amount;
     private Float unitsPurchased;
     private LocalDateTime transactionDate;
-    private String status; // PENDING, SUCCESS, FAILED
+    private String status; // PENDING, PAYMENT_CONFIRMED, SUCCESS, FAILED, REG_FAILED, DEAD_LETTER
     private String transactionReference;
 
+    // When a PENDING transaction counts as stuck and is verified again (PurchaseRetryService).
+    @Column(name = "next_retry_at")
+    private LocalDateTime nextRetryAt;
+
+    @Column(name = "retry_attempts", nullable = false, columnDefinition = "integer default 0")
+    private int retryAttempts;
+
     @OneToOne(mappedBy = "transaction", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Payment payment;
 }
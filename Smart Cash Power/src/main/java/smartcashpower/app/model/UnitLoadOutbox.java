@@ -0,0 +1,67 @@
+package smartcashpower.app.model;
+
+import lombok.Data;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A pending REG unit load, written in the same database transaction that marks the payment
+ * COMPLETED so a paid purchase can never be lost between the two provider calls.
+ */
+@Data
+@Entity
+@Table(name = "unit_load_outbox",
+        indexes = {
+                @Index(name = "idx_unit_load_outbox_status_id", columnList = "status, outbox_id"),
+                @Index(name = "idx_unit_load_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+        })
+public class UnitLoadOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "unit_load_outbox_seq")
+    @SequenceGenerator(name = "unit_load_outbox_seq", sequenceName = "unit_load_outbox_seq", allocationSize = 50)
+    @Column(name = "outbox_id")
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false, unique = true)
+    private Integer transactionId;
+
+    @Column(name = "transaction_reference", nullable = false)
+    private String transactionReference;
+
+    @Column(name = "meter_id", nullable = false)
+    private Long meterId;
+
+    @Column(name = "meter_number", nullable = false)
+    private String meterNumber;
+
+    @Column(nullable = false)
+    private Float units;
+
+    @Column(nullable = false)
+    private String status = "PENDING"; // PENDING, IN_FLIGHT, FAILED, DEAD
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    // When a FAILED entry is due to be sent again.
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    public static UnitLoadOutbox forTransaction(Transaction transaction) {
+        UnitLoadOutbox entry = new UnitLoadOutbox();
+        entry.setTransactionId(transaction.getTransactionId());
+        entry.setTransactionReference(transaction.getTransactionReference());
+        entry.setMeterId(transaction.getMeter().getId());
+        entry.setMeterNumber(transaction.getMeter().getMeterNumber());
+        entry.setUnits(transaction.getUnitsPurchased());
+        return entry;
+    }
+}
@@ -7,14 +7,18 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_created_at_id", columnList = "created_at, user_id"),
+        @Index(name = "idx_users_full_name_id", columnList = "full_name, user_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @Column(name = "user_id")
     private Long id;
 
@@ -44,5 +48,12 @@ public class User {
 
     @Column(name = "password_reset_allowed_until")
     private LocalDateTime passwordResetAllowedUntil;
+
+    /**
+     * Raised by every change that must sign the user out (blocking, a new password). Tokens carry
+     * the version they were issued under and are refused once it is behind.
+     */
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private int tokenVersion;
 }
 
@@ -0,0 +1,191 @@
+package smartcashpower.app.repository;
+
+import smartcashpower.app.dto.RevenueRollupResponse;
+import smartcashpower.app.model.DailyTransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintains {@code daily_transaction_rollups}. Changes to transactions are appended to
+ * {@code daily_transaction_rollup_deltas} as signed deltas, by statements that read the
+ * transaction rows and so must run after they have been updated, in the same database transaction.
+ * Appending takes no lock on the totals, so purchases never wait on each other's rollup row.
+ * {@link #foldDeltas} later adds the deltas to the totals in key order, which keeps concurrent
+ * folds from deadlocking on each other. Readers add the deltas not yet folded to the totals.
+ */
+@Repository
+public interface DailyTransactionRollupRepository extends JpaRepository<DailyTransactionRollup, DailyTransactionRollup.Key> {
+
+    String ROLLUP_KEY = "CAST(t.transaction_date AS date) AS day, COALESCE(p.provider_name, 'UNKNOWN') AS provider, ";
+
+    String TRANSACTIONS_WITH_PROVIDER = " FROM transactions t LEFT JOIN payments p ON p.transaction_id = t.transaction_id ";
+
+    String INSERT_ROLLUPS = "INSERT INTO daily_transaction_rollups "
+            + "(day, provider, status, transaction_count, amount_total, units_total) ";
+
+    String INSERT_DELTAS = "INSERT INTO daily_transaction_rollup_deltas "
+            + "(delta_id, day, provider, status, transaction_count, amount_total, units_total) "
+            + "SELECT nextval('daily_transaction_rollup_deltas_seq'), d.* FROM (";
+
+    String GROUP_DELTAS = " GROUP BY 1, 2, 3) d";
+
+    String MERGE_ROLLUPS = " GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 "
+            + "ON CONFLICT (day, provider, status) DO UPDATE SET "
+            + "transaction_count = daily_transaction_rollups.transaction_count + EXCLUDED.transaction_count, "
+            + "amount_total = daily_transaction_rollups.amount_total + EXCLUDED.amount_total, "
+            + "units_total = daily_transaction_rollups.units_total + EXCLUDED.units_total";
+
+    /**
+     * The totals for {@code [:startDay, :endDay)} together with the deltas not folded into them yet.
+     */
+    String TOTALS_WITH_DELTAS = "(SELECT t.day AS day, t.provider AS provider, t.status AS status, "
+            + "t.transactionCount AS transactionCount, t.amountTotal AS amountTotal, t.unitsTotal AS unitsTotal "
+            + "FROM DailyTransactionRollup t WHERE t.day >= :startDay AND t.day < :endDay "
+            + "UNION ALL SELECT d.day, d.provider, d.status, d.transactionCount, d.amountTotal, d.unitsTotal "
+            + "FROM DailyTransactionRollupDelta d WHERE d.day >= :startDay AND d.day < :endDay)";
+
+    /**
+     * Adds newly created transactions to the totals of their current status.
+     *
+     * @param transactionIds the transactions just inserted
+     * @return the number of deltas written
+     */
+    @Modifying
+    @Query(value = INSERT_DELTAS + "SELECT " + ROLLUP_KEY + "t.status, COUNT(*), "
+            + "SUM(CAST(t.amount AS float8)), SUM(CAST(t.units_purchased AS float8))"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.transaction_id IN (:transactionIds)" + GROUP_DELTAS,
+            nativeQuery = true)
+    int addTransactions(@Param("transactionIds") Collection<Integer> transactionIds);
+
+    /**
+     * Moves transactions that have just left {@code fromStatus} to the totals of their current
+     * status.
+     *
+     * @param transactionIds the transactions whose status was just changed
+     * @param fromStatus the status they all had before the change
+     * @return the number of deltas written
+     */
+    @Modifying
+    @Query(value = INSERT_DELTAS + "SELECT m.day, m.provider, m.status, SUM(m.sign), SUM(m.sign * m.amount), SUM(m.sign * m.units) "
+            + "FROM (SELECT " + ROLLUP_KEY + "t.status AS status, 1 AS sign, "
+            + "CAST(t.amount AS float8) AS amount, CAST(t.units_purchased AS float8) AS units"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.transaction_id IN (:transactionIds) "
+            + "UNION ALL SELECT " + ROLLUP_KEY + "CAST(:fromStatus AS varchar), -1, "
+            + "CAST(t.amount AS float8), CAST(t.units_purchased AS float8)"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.transaction_id IN (:transactionIds)) m"
+            + GROUP_DELTAS,
+            nativeQuery = true)
+    int moveTransactions(@Param("transactionIds") Collection<Integer> transactionIds,
+                         @Param("fromStatus") String fromStatus);
+
+    /**
+     * Takes a meter's transactions out of the totals; call it before they are deleted.
+     *
+     * @param meterId the meter whose transactions are about to be deleted
+     * @return the number of deltas written
+     */
+    @Modifying
+    @Query(value = INSERT_DELTAS + "SELECT " + ROLLUP_KEY + "t.status, -COUNT(*), "
+            + "-SUM(CAST(t.amount AS float8)), -SUM(CAST(t.units_purchased AS float8))"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.meter_id = :meterId" + GROUP_DELTAS,
+            nativeQuery = true)
+    int removeMeterTransactions(@Param("meterId") Long meterId);
+
+    /**
+     * Takes transactions out of the totals; call it before they are deleted.
+     *
+     * @param transactionIds the transactions about to be deleted
+     * @return the number of deltas written
+     */
+    @Modifying
+    @Query(value = INSERT_DELTAS + "SELECT " + ROLLUP_KEY + "t.status, -COUNT(*), "
+            + "-SUM(CAST(t.amount AS float8)), -SUM(CAST(t.units_purchased AS float8))"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.transaction_id IN (:transactionIds)" + GROUP_DELTAS,
+            nativeQuery = true)
+    int removeTransactions(@Param("transactionIds") Collection<Integer> transactionIds);
+
+    /**
+     * Takes a user's transactions out of the totals; call it before they are deleted.
+     *
+     * @param userId the user whose transactions are about to be deleted
+     * @return the number of deltas written
+     */
+    @Modifying
+    @Query(value = INSERT_DELTAS + "SELECT " + ROLLUP_KEY + "t.status, -COUNT(*), "
+            + "-SUM(CAST(t.amount AS float8)), -SUM(CAST(t.units_purchased AS float8))"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.user_id = :userId" + GROUP_DELTAS,
+            nativeQuery = true)
+    int removeUserTransactions(@Param("userId") Long userId);
+
+    /**
+     * Moves up to {@code limit} of the oldest deltas into the totals, in one statement. Deltas
+     * locked by a concurrent fold are skipped rather than waited for.
+     *
+     * @return the number of deltas folded
+     */
+    @Query(value = "WITH folded AS (DELETE FROM daily_transaction_rollup_deltas WHERE delta_id IN ("
+            + "SELECT delta_id FROM daily_transaction_rollup_deltas ORDER BY delta_id LIMIT :limit "
+            + "FOR UPDATE SKIP LOCKED) "
+            + "RETURNING day, provider, status, transaction_count, amount_total, units_total), "
+            // Unreferenced, but a data-modifying CTE always runs to completion.
+            + "merged AS (" + INSERT_ROLLUPS + "SELECT day, provider, status, SUM(transaction_count), "
+            + "SUM(amount_total), SUM(units_total) FROM folded" + MERGE_ROLLUPS + ") "
+            + "SELECT COUNT(*) FROM folded",
+            nativeQuery = true)
+    int foldDeltas(@Param("limit") int limit);
+
+    /**
+     * Blocks new deltas and folds until the current transaction ends, without blocking readers.
+     * Taken before a range is rebuilt so no delta can land between the delete and the re-insert.
+     * The delta table is locked first, in the same order a fold takes them.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE daily_transaction_rollup_deltas, daily_transaction_rollups IN SHARE ROW EXCLUSIVE MODE",
+            nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query("DELETE FROM DailyTransactionRollup r WHERE r.day >= :startDay AND r.day < :endDay")
+    int deleteDays(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    @Modifying
+    @Query("DELETE FROM DailyTransactionRollupDelta d WHERE d.day >= :startDay AND d.day < :endDay")
+    int deleteDeltaDays(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    /**
+     * Recomputes the totals for the transactions dated in {@code [start, end)} from scratch.
+     *
+     * @return the number of rollup rows written
+     */
+    @Modifying
+    @Query(value = INSERT_ROLLUPS + "SELECT " + ROLLUP_KEY + "t.status, COUNT(*), "
+            + "SUM(CAST(t.amount AS float8)), SUM(CAST(t.units_purchased AS float8))"
+            + TRANSACTIONS_WITH_PROVIDER + "WHERE t.transaction_date >= :start AND t.transaction_date < :end"
+            + MERGE_ROLLUPS,
+            nativeQuery = true)
+    int rebuildDays(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT new smartcashpower.app.dto.RevenueRollupResponse(YEAR(r.day), MONTH(r.day), r.provider, r.status, "
+            + "SUM(r.transactionCount), SUM(r.amountTotal), SUM(r.unitsTotal)) "
+            + "FROM " + TOTALS_WITH_DELTAS + " r "
+            + "GROUP BY YEAR(r.day), MONTH(r.day), r.provider, r.status "
+            + "HAVING SUM(r.transactionCount) <> 0 "
+            + "ORDER BY YEAR(r.day), MONTH(r.day), r.provider, r.status")
+    List<RevenueRollupResponse> findMonthlyTotals(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT new smartcashpower.app.dto.RevenueRollupResponse(YEAR(r.day), r.provider, r.status, "
+            + "SUM(r.transactionCount), SUM(r.amountTotal), SUM(r.unitsTotal)) "
+            + "FROM " + TOTALS_WITH_DELTAS + " r "
+            + "GROUP BY YEAR(r.day), r.provider, r.status "
+            + "HAVING SUM(r.transactionCount) <> 0 "
+            + "ORDER BY YEAR(r.day), r.provider, r.status")
+    List<RevenueRollupResponse> findYearlyTotals(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+}
@@ -0,0 +1,32 @@
+package smartcashpower.app.repository;
+
+import smartcashpower.app.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    /**
+     * Finds the record of a key previously used by a user.
+     *
+     * @param userId the user that sent the key
+     * @param idempotencyKey the client supplied key
+     * @return an Optional containing the record if the key was used, or an empty Optional if not
+     */
+    Optional<IdempotencyKey> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
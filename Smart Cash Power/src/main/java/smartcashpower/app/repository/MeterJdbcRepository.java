@@ -0,0 +1,44 @@
+package smartcashpower.app.repository;
+
+import smartcashpower.app.dto.UpdateUnitsRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Meter writes that go straight to JDBC so they can be sent to the database as one batch.
+ */
+@Repository
+public class MeterJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public MeterJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Applies many meter readings in a single JDBC batch.
+     *
+     * @param readings the readings to apply; each must carry a meter id
+     * @param now the instant of the readings
+     * @return the update count for each reading, in order
+     */
+    public int[] recordUsageBatch(List<UpdateUnitsRequest> readings, LocalDateTime now) {
+        SqlParameterSource[] batch = new SqlParameterSource[readings.size()];
+        for (int i = 0; i < batch.length; i++) {
+            UpdateUnitsRequest reading = readings.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("meterId", reading.getMeterId())
+                    .addValue("usedUnits", reading.getUsedUnits())
+                    .addValue("now", now);
+        }
+        return jdbcTemplate.batchUpdate(MeterRepository.RECORD_USAGE, batch);
+    }
+}
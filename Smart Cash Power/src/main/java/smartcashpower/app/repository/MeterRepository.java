@@ -1,17 +1,37 @@
 package smartcashpower.app.repository;
 
+import smartcashpower.app.dto.MeterDetailDTO;
 import smartcashpower.app.model.Meter;
-import smartcashpower.app.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MeterRepository extends JpaRepository<Meter, Long> {
 
+    /**
+     * Units consumed since the last settlement, capped at the settled balance. Mirrors
+     * {@link Meter#unsettledConsumption}.
+     */
+    String CONSUMED = "LEAST(current_units, consumption_rate * "
+            + "GREATEST(EXTRACT(EPOCH FROM (:now - COALESCE(last_settled_at, :now))), 0))";
+
+    /**
+     * Applies a meter reading; shared with {@link MeterJdbcRepository#recordUsageBatch}.
+     */
+    String RECORD_USAGE = "UPDATE meters SET "
+            + "current_units = GREATEST(current_units - (:usedUnits - used_units), 0), "
+            + "used_units = :usedUnits, "
+            + "last_settled_at = :now "
+            + "WHERE meter_id = :meterId AND used_units <= :usedUnits";
+
     /**
      * Finds a meter by its unique meter number.
      *
@@ -23,11 +43,157 @@ public interface MeterRepository extends JpaRepository<Meter, Long> {
     /**
      * Finds all meters associated with a specific user.
      *
-     * @param user the user to find meters for
+     * @param userId the id of the user to find meters for
      * @return a list of meters belonging to the user
      */
-    List<Meter> findByUser(User user);
+    List<Meter> findByUserId(Long userId);
+
+    /**
+     * Reads the admin meter listing in one statement, selecting only the columns the DTO needs.
+     *
+     * @return every meter with its owner's email and name
+     */
+    @Query("SELECT new smartcashpower.app.dto.MeterDetailDTO("
+            + "m.id, m.meterNumber, m.currentUnits, m.consumptionRate, m.lastSettledAt, m.active, u.email, u.fullName) "
+            + "FROM Meter m JOIN m.user u ORDER BY m.id")
+    List<MeterDetailDTO> findAllDetails();
+
+    /**
+     * Returns which of the given meters belong to the user, in one query.
+     *
+     * @param meterIds the meters to check
+     * @param userId the expected owner
+     * @return the subset of {@code meterIds} owned by the user
+     */
+    @Query("SELECT m.id FROM Meter m WHERE m.id IN :meterIds AND m.user.id = :userId")
+    List<Long> findIdsOwnedBy(@Param("meterIds") Collection<Long> meterIds, @Param("userId") Long userId);
+
+    /**
+     * Settles a meter's consumption up to {@code now} and adds units to the settled balance, all in
+     * a single UPDATE, so concurrent credits on the same meter are applied one after another by the
+     * database instead of overwriting each other.
+     *
+     * @param meterId the meter to credit
+     * @param units the units to add
+     * @param now the settlement instant
+     * @return the number of meters updated (0 if the meter does not exist)
+     */
+    @Modifying
+    @Query(value = "UPDATE meters SET "
+            + "used_units = used_units + " + CONSUMED + ", "
+            + "current_units = current_units - " + CONSUMED + " + :units, "
+            + "last_settled_at = GREATEST(COALESCE(last_settled_at, :now), :now) "
+            + "WHERE meter_id = :meterId", nativeQuery = true)
+    int creditUnits(@Param("meterId") Long meterId, @Param("units") Float units, @Param("now") LocalDateTime now);
+
+    /**
+     * Applies a meter reading: the balance is debited by the units used since the settled reading
+     * and the meter is settled at {@code now}. Readings lower than the stored usage are ignored.
+     *
+     * @param meterId the meter to update
+     * @param usedUnits the total units the meter has consumed
+     * @param now the instant of the reading
+     * @return the number of meters updated
+     */
+    @Modifying
+    @Query(value = RECORD_USAGE, nativeQuery = true)
+    int recordUsage(@Param("meterId") Long meterId, @Param("usedUnits") Float usedUnits, @Param("now") LocalDateTime now);
+
+    /**
+     * Settles the consumption of up to {@code limit} meters that have not been settled since
+     * {@code cutoff}.
+     *
+     * @return the number of meters settled
+     */
+    @Modifying
+    @Query(value = "UPDATE meters SET "
+            + "used_units = used_units + " + CONSUMED + ", "
+            + "current_units = current_units - " + CONSUMED + ", "
+            + "last_settled_at = :now "
+            + "WHERE meter_id IN (SELECT meter_id FROM meters "
+            + "WHERE last_settled_at IS NULL OR last_settled_at < :cutoff ORDER BY meter_id LIMIT :limit)",
+            nativeQuery = true)
+    int settleStaleMeters(@Param("now") LocalDateTime now, @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Query("SELECT m.id FROM Meter m WHERE m.user.id = :userId ORDER BY m.id")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE Meter m SET m.active = false WHERE m.id = :meterId")
+    int deactivate(@Param("meterId") Long meterId);
+
+    /**
+     * Row-locks a meter until the current transaction ends. Inserting a transaction for it checks
+     * the meter foreign key, which waits on the lock and then fails once the meter is deleted, so
+     * none can be inserted between the final cleanup of its history and its own deletion.
+     *
+     * @return the meter id, or empty if the meter no longer exists
+     */
+    @Query(value = "SELECT meter_id FROM meters WHERE meter_id = :meterId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("meterId") Long meterId);
+
+    /**
+     * Reads a meter's monthly total and whether it is active, bypassing the persistence context.
+     */
+    @Query("SELECT m.monthlyUnitsPeriod AS period, m.monthlyUnits AS units, m.active AS active "
+            + "FROM Meter m WHERE m.id = :meterId")
+    Optional<MonthlyUnits> findMonthlyUnits(@Param("meterId") Long meterId);
+
+    /**
+     * Sets a meter's monthly total only if it still holds the total a purchase priced its tariff
+     * tier against and the meter is still active, so concurrent purchases never price against the
+     * same total without locking the meter to read it. Run it in a transaction of its own: the
+     * meter row stays locked until that commits.
+     *
+     * @return 1 if the total was set, 0 if it changed since it was read or the meter is inactive
+     */
+    @Modifying
+    @Query("UPDATE Meter m SET m.monthlyUnits = :monthlyUnits, m.monthlyUnitsPeriod = :period "
+            + "WHERE m.id = :meterId AND m.active = true "
+            + "AND m.monthlyUnitsPeriod = :expectedPeriod AND m.monthlyUnits = :expectedUnits")
+    int compareAndSetMonthlyUnits(@Param("meterId") Long meterId,
+                                  @Param("expectedPeriod") int expectedPeriod, @Param("expectedUnits") Float expectedUnits,
+                                  @Param("period") int period, @Param("monthlyUnits") Float monthlyUnits);
+
+    /**
+     * Takes units reserved by {@link #compareAndSetMonthlyUnits} for a purchase that was never
+     * recorded back off the meter's monthly total, unless the month has moved on.
+     *
+     * @return the number of meters updated
+     */
+    @Modifying
+    @Query(value = "UPDATE meters SET monthly_units = GREATEST(monthly_units - :units, 0) "
+            + "WHERE meter_id = :meterId AND monthly_units_period = :period", nativeQuery = true)
+    int releaseReservedUnits(@Param("meterId") Long meterId, @Param("period") int period, @Param("units") float units);
+
+    /**
+     * Takes the units of purchases that will never be paid out of their meters' monthly totals, so
+     * they do not push later purchases into a higher tariff tier. Totals of a past month are left alone.
+     *
+     * @return the number of meters updated
+     */
+    @Modifying
+    @Query(value = "UPDATE meters m SET monthly_units = GREATEST(m.monthly_units - r.units, 0) "
+            + "FROM (SELECT meter_id, CAST(to_char(transaction_date, 'YYYYMM') AS integer) AS period, "
+            + "SUM(units_purchased) AS units FROM transactions WHERE transaction_id IN (:transactionIds) "
+            + "GROUP BY meter_id, period) r "
+            + "WHERE m.meter_id = r.meter_id AND m.monthly_units_period = r.period",
+            nativeQuery = true)
+    int releaseMonthlyUnits(@Param("transactionIds") Collection<Integer> transactionIds);
+
+    @Modifying
+    @Query("UPDATE Meter m SET m.tariffCategory = :category WHERE m.id = :meterId")
+    int updateTariffCategory(@Param("meterId") Long meterId, @Param("category") String category);
+
+    @Modifying
+    @Query("DELETE FROM Meter m WHERE m.id = :meterId")
+    int deleteByIdInBulk(@Param("meterId") Long meterId);
+
+    interface MonthlyUnits {
+        int getPeriod();
+
+        float getUnits();
 
-    @Query("SELECT m FROM Meter m JOIN FETCH m.user")
-    List<Meter> findAllWithUser();
+        Boolean getActive();
+    }
 }
@@ -2,8 +2,14 @@ package smartcashpower.app.repository;
 
 import smartcashpower.app.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +22,51 @@ public interface PaymentRepository extends JpaRepository<Payment, Integer> {
      * @return an Optional containing the payment if found, or an empty Optional if not
      */
     Optional<Payment> findByPaymentReference(String paymentReference);
+
+    /**
+     * Reads one page of a provider's payments made before {@code to}, in (payment date, reference)
+     * order starting after the given key. The range is read from idx_payments_routed_provider_date_reference.
+     *
+     * @param routedProvider the id of the provider the payment was routed to
+     * @param afterDate the payment date of the last row of the previous page
+     * @param afterReference the payment reference of the last row of the previous page
+     * @param to the exclusive upper bound of the payment date
+     * @param limit the page size
+     */
+    @Query(value = "SELECT p.payment_reference AS paymentReference, p.payment_status AS paymentStatus, "
+            + "p.payment_date AS paymentDate, t.amount AS amount "
+            + "FROM payments p JOIN transactions t ON t.transaction_id = p.transaction_id "
+            + "WHERE p.routed_provider = :routedProvider "
+            + "AND (p.payment_date, p.payment_reference) > (:afterDate, :afterReference) AND p.payment_date < :to "
+            + "ORDER BY p.payment_date, p.payment_reference LIMIT :limit",
+            nativeQuery = true)
+    List<SettlementPayment> findSettlementPage(@Param("routedProvider") String routedProvider,
+                                               @Param("afterDate") LocalDateTime afterDate,
+                                               @Param("afterReference") String afterReference,
+                                               @Param("to") LocalDateTime to,
+                                               @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM payments WHERE transaction_id IN (:transactionIds)", nativeQuery = true)
+    int deleteByTransactionIds(@Param("transactionIds") Collection<Integer> transactionIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM payments p USING transactions t "
+            + "WHERE p.transaction_id = t.transaction_id AND t.meter_id = :meterId", nativeQuery = true)
+    int deleteByMeterId(@Param("meterId") Long meterId);
+
+    @Modifying
+    @Query(value = "DELETE FROM payments p USING transactions t "
+            + "WHERE p.transaction_id = t.transaction_id AND t.user_id = :userId", nativeQuery = true)
+    int deleteByUserId(@Param("userId") Long userId);
+
+    interface SettlementPayment {
+        String getPaymentReference();
+
+        String getPaymentStatus();
+
+        LocalDateTime getPaymentDate();
+
+        Float getAmount();
+    }
 }
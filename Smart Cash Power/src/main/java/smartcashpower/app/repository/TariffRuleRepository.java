@@ -0,0 +1,9 @@
+package smartcashpower.app.repository;
+
+import smartcashpower.app.model.TariffRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TariffRuleRepository extends JpaRepository<TariffRule, Long> {
+}
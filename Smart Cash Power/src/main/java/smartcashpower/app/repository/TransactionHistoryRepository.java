@@ -0,0 +1,69 @@
+package smartcashpower.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import smartcashpower.app.dto.TransactionResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset-paginated reads of a user's transaction history. Rows are ordered by
+ * {@code (transactionDate, transactionId)} descending and each page starts strictly after the
+ * last row of the previous one, so the cost of a page does not grow with its depth. Results are
+ * projected straight into {@link TransactionResponse} without loading entities.
+ */
+@Repository
+public class TransactionHistoryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param userId the owner of the transactions
+     * @param meterId only return purchases for this meter, or {@code null} for all meters
+     * @param status only return transactions in this status, or {@code null} for any status
+     * @param afterDate date of the last row already seen, or {@code null} for the first page
+     * @param afterId id of the last row already seen; ignored when {@code afterDate} is null
+     * @param limit maximum number of rows to return
+     */
+    public List<TransactionResponse> findPage(Long userId, Long meterId, String status,
+                                              LocalDateTime afterDate, Integer afterId, int limit) {
+        // Filters are appended only when present so every variant can use the composite index.
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new smartcashpower.app.dto.TransactionResponse("
+                        + "t.transactionId, m.meterNumber, t.amount, t.unitsPurchased, t.status, "
+                        + "t.transactionDate, t.transactionReference) "
+                        + "FROM Transaction t JOIN t.meter m WHERE t.user.id = :userId");
+        if (meterId != null) {
+            jpql.append(" AND m.id = :meterId");
+        }
+        if (status != null) {
+            jpql.append(" AND t.status = :status");
+        }
+        if (afterDate != null) {
+            // A row-value comparison, unlike the equivalent OR, is a range condition on the index, so a
+            // page starts where the previous one ended instead of walking the index from the top.
+            // Hibernate cannot infer parameter types inside a tuple, hence the casts.
+            jpql.append(" AND (t.transactionDate, t.transactionId)"
+                    + " < (cast(:afterDate as LocalDateTime), cast(:afterId as Integer))");
+        }
+        jpql.append(" ORDER BY t.transactionDate DESC, t.transactionId DESC");
+
+        TypedQuery<TransactionResponse> query = entityManager.createQuery(jpql.toString(), TransactionResponse.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit);
+        if (meterId != null) {
+            query.setParameter("meterId", meterId);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (afterDate != null) {
+            query.setParameter("afterDate", afterDate).setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+}
@@ -1,23 +1,143 @@
 package smartcashpower.app.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import smartcashpower.app.dto.TransactionDetailDTO;
 import smartcashpower.app.model.Transaction;
-import smartcashpower.app.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Integer> {
 
+    // Report rows are projected from transactions joined to their user and meter. Selecting only
+    // these columns also skips the inverse payment association, which Hibernate would otherwise
+    // load with one extra select per row.
+    String TRANSACTION_DETAIL = "SELECT new smartcashpower.app.dto.TransactionDetailDTO("
+            + "t.transactionId, u.email, u.fullName, m.meterNumber, t.amount, t.unitsPurchased, "
+            + "t.transactionDate, t.status, t.transactionReference) "
+            + "FROM Transaction t JOIN t.user u JOIN t.meter m "
+            + "WHERE t.transactionDate BETWEEN :startDate AND :endDate "
+            + "ORDER BY t.transactionDate, t.transactionId";
+
+    /**
+     * Reads the report rows for a date range in one statement.
+     */
+    @Query(TRANSACTION_DETAIL)
+    List<TransactionDetailDTO> findDetailsByTransactionDateBetween(@Param("startDate") LocalDateTime startDate,
+                                                                   @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Streams the same rows as {@link #findDetailsByTransactionDateBetween}. Nothing accumulates in
+     * the persistence context, and the driver fetches them from a
+     * server-side cursor in chunks of {@link #EXPORT_FETCH_SIZE}. Must be consumed inside a
+     * read-only transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(TRANSACTION_DETAIL)
+    Stream<TransactionDetailDTO> streamDetailsByTransactionDateBetween(@Param("startDate") LocalDateTime startDate,
+                                                                       @Param("endDate") LocalDateTime endDate);
+
+    String EXPORT_FETCH_SIZE = "500";
+
+    /**
+     * Finds a transaction by the reference handed back to the client when the purchase was accepted.
+     *
+     * @param transactionReference the transaction reference to search for
+     * @return an Optional containing the transaction if found, or an empty Optional if not
+     */
+    Optional<Transaction> findByTransactionReference(String transactionReference);
+
+    /**
+     * Moves a transaction to a new status only if it is still in the expected one, so a stage that
+     * is replayed (for example after a restart) cannot apply its effects twice.
+     *
+     * @param transactionId the transaction to update
+     * @param expectedStatus the status the transaction must currently have
+     * @param newStatus the status to move to
+     * @return 1 if the transition happened, 0 if the transaction was not in the expected status
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :newStatus WHERE t.transactionId = :transactionId AND t.status = :expectedStatus")
+    int compareAndSetStatus(@Param("transactionId") Integer transactionId,
+                            @Param("expectedStatus") String expectedStatus,
+                            @Param("newStatus") String newStatus);
+
+    /**
+     * Moves several transactions to a new status, each only if it is still in the expected one.
+     *
+     * @return the number of transactions moved
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :newStatus WHERE t.transactionId IN :transactionIds AND t.status = :expectedStatus")
+    int compareAndSetStatuses(@Param("transactionIds") Collection<Integer> transactionIds,
+                              @Param("expectedStatus") String expectedStatus,
+                              @Param("newStatus") String newStatus);
+
     /**
-     * Finds all transactions for a specific user, ordered by transaction date in descending order.
+     * Locks the PENDING transactions that are due to be verified again, read in retry order from
+     * idx_transactions_status_next_retry. Rows locked by another node are skipped.
+     */
+    @Query(value = "SELECT transaction_id AS transactionId, retry_attempts AS retryAttempts FROM transactions "
+            + "WHERE status = 'PENDING' AND next_retry_at <= :now ORDER BY next_retry_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<RetryCandidate> lockDuePending(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Counts a retry for each transaction and schedules the next one. Same backoff as
+     * {@code RetryPolicy#nextAttemptAt}, computed per row so each gets its own jitter.
      *
-     * @param user the user to find transactions for
-     * @return a list of transactions belonging to the user, ordered by transaction date descending
+     * @return the number of transactions rescheduled
+     */
+    @Modifying
+    @Query(value = "UPDATE transactions SET retry_attempts = retry_attempts + 1, "
+            + "next_retry_at = :now + make_interval(secs => LEAST(:baseSeconds * power(2, retry_attempts), :maxSeconds) "
+            + "* (0.5 + random() * 0.5)) "
+            + "WHERE transaction_id IN (:transactionIds)",
+            nativeQuery = true)
+    int scheduleRetry(@Param("transactionIds") Collection<Integer> transactionIds, @Param("now") LocalDateTime now,
+                      @Param("baseSeconds") double baseSeconds, @Param("maxSeconds") double maxSeconds);
+
+    /**
+     * Returns up to {@code limit} ids of a meter's transactions, read from idx_transactions_meter_date_id.
      */
-    List<Transaction> findByUserOrderByTransactionDateDesc(User user);
-    List<Transaction> findByMeter(smartcashpower.app.model.Meter meter);
-    List<Transaction> findAllByTransactionDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    @Query(value = "SELECT transaction_id FROM transactions WHERE meter_id = :meterId LIMIT :limit", nativeQuery = true)
+    List<Integer> findIdsByMeterId(@Param("meterId") Long meterId, @Param("limit") int limit);
+
+    /**
+     * Returns up to {@code limit} ids of a user's transactions, read from idx_transactions_user_date_id.
+     */
+    @Query(value = "SELECT transaction_id FROM transactions WHERE user_id = :userId LIMIT :limit", nativeQuery = true)
+    List<Integer> findIdsByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.transactionId IN :transactionIds")
+    int deleteByIds(@Param("transactionIds") Collection<Integer> transactionIds);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.meter.id = :meterId")
+    int deleteByMeterId(@Param("meterId") Long meterId);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    interface RetryCandidate {
+        Integer getTransactionId();
+
+        int getRetryAttempts();
+    }
 }
@@ -0,0 +1,57 @@
+package smartcashpower.app.repository;
+
+import smartcashpower.app.model.UnitLoadOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UnitLoadOutboxRepository extends JpaRepository<UnitLoadOutbox, Long> {
+
+    /**
+     * Locks the oldest pending entries for dispatch. Rows already locked by another dispatcher are
+     * skipped rather than waited on, so several nodes can drain the outbox side by side.
+     *
+     * @param limit the maximum number of entries to lock
+     * @return the locked entries, oldest first
+     */
+    @Query(value = "SELECT * FROM unit_load_outbox WHERE status = 'PENDING' ORDER BY outbox_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<UnitLoadOutbox> lockNextPending(@Param("limit") int limit);
+
+    /**
+     * Locks the failed entries that are due to be sent again, read in retry order from
+     * idx_unit_load_outbox_status_next_attempt. Rows locked by another node are skipped.
+     */
+    @Query(value = "SELECT * FROM unit_load_outbox WHERE status = 'FAILED' AND next_attempt_at <= :now "
+            + "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<UnitLoadOutbox> lockDueFailed(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Returns entries whose dispatcher died mid-flight to the pending queue.
+     *
+     * @param cutoff entries claimed before this instant are considered abandoned
+     * @return the number of entries released
+     */
+    @Modifying
+    @Query("UPDATE UnitLoadOutbox o SET o.status = 'PENDING', o.claimedAt = null WHERE o.status = 'IN_FLIGHT' AND o.claimedAt < :cutoff")
+    int releaseClaimsOlderThan(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE UnitLoadOutbox o SET o.status = 'PENDING', o.claimedAt = null WHERE o.id IN :ids")
+    int releaseClaims(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE UnitLoadOutbox o SET o.status = 'PENDING', o.claimedAt = null, o.nextAttemptAt = null WHERE o.id IN :ids")
+    int requeue(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM UnitLoadOutbox o WHERE o.meterId = :meterId")
+    int deleteByMeterId(@Param("meterId") Long meterId);
+}
@@ -1,7 +1,13 @@
 package smartcashpower.app.repository;
 
+import smartcashpower.app.dto.UserDetailedResponse;
 import smartcashpower.app.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +16,17 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // The meter count is a correlated subquery rather than a join plus GROUP BY, so PostgreSQL
+    // only counts meters (via idx_meters_user_id) for the rows on the requested page.
+    String USER_SUMMARY = "SELECT new smartcashpower.app.dto.UserDetailedResponse("
+            + "u.id, u.email, u.fullName, u.phoneNumber, u.createdAt, u.active, "
+            + "(SELECT COUNT(m) FROM Meter m WHERE m.user = u)) FROM User u";
+
+    // Each branch matches one of the prefix indexes created by db/upgrade/002_user_search_indexes.sql.
+    String PREFIX_SEARCH = " WHERE lower(u.email) LIKE :prefix ESCAPE '\\'"
+            + " OR lower(u.fullName) LIKE :prefix ESCAPE '\\'"
+            + " OR u.phoneNumber LIKE :prefix ESCAPE '\\'";
+
     /**
      * Finds a user by their email address.
      *
@@ -36,4 +53,41 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailOrPhoneNumber(String email, String phoneNumber);
 
     List<User> findByPasswordResetRequestedAtIsNotNullAndPasswordResetAllowedUntilIsNull();
+
+    /**
+     * Returns one page of users with their meter counts. Fetches one row beyond the page to tell
+     * whether another page exists; no count query is run.
+     *
+     * @param pageable page, size and sort; sort properties must be attributes of {@code User}
+     * @return the page of user summaries
+     */
+    @Query(USER_SUMMARY)
+    Slice<UserDetailedResponse> findSummaries(Pageable pageable);
+
+    /**
+     * Returns one page of users whose email, full name or phone number starts with the prefix.
+     *
+     * @param prefix a lower-case LIKE pattern ending in {@code %}, with wildcards in the input escaped
+     * @param pageable page, size and sort; sort properties must be attributes of {@code User}
+     * @return the page of matching user summaries
+     */
+    @Query(USER_SUMMARY + PREFIX_SEARCH)
+    Slice<UserDetailedResponse> searchSummaries(@Param("prefix") String prefix, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE User u SET u.active = false WHERE u.id = :userId")
+    int deactivate(@Param("userId") Long userId);
+
+    /**
+     * Row-locks a user until the current transaction ends, holding off new meters and transactions
+     * that reference it.
+     *
+     * @return the user id, or empty if the user no longer exists
+     */
+    @Query(value = "SELECT user_id FROM users WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :userId")
+    int deleteByIdInBulk(@Param("userId") Long userId);
 }
@@ -1,23 +1,30 @@
 package smartcashpower.app.service;
 
+import smartcashpower.app.dto.PageResponse;
 import smartcashpower.app.dto.UserDetailedResponse;
 import smartcashpower.app.model.Admin;
-import smartcashpower.app.model.Meter;
-import smartcashpower.app.model.Transaction;
 import smartcashpower.app.model.User;
 import smartcashpower.app.repository.*;
 import smartcashpower.app.exception.ResourceNotFoundException;
 import smartcashpower.app.dto.TransactionDetailDTO;
 import smartcashpower.app.dto.MeterDetailDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 
@@ -29,41 +36,54 @@ public class AdminService {
     private final TransactionRepository transactionRepository;
     private final MeterRepository meterRepository;
     private final AdminRepository adminRepository;
-    private final PaymentRepository paymentRepository;
-
+    private final BulkDeletionService bulkDeletionService;
+    private final TariffService tariffService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<String, Long> userCount;
+
+    /**
+     * The user count is shown on every admin dashboard load and needs a full scan of the users
+     * table, so it is cached for a short while instead of being counted on each request.
+     */
     @Autowired
     public AdminService(UserRepository userRepository,
                         TransactionRepository transactionRepository,
                         MeterRepository meterRepository,
                         AdminRepository adminRepository,
-                        PaymentRepository paymentRepository) {
+                        BulkDeletionService bulkDeletionService,
+                        TariffService tariffService,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${admin.user-count-cache.ttl-seconds:60}") long userCountTtlSeconds) {
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
         this.meterRepository = meterRepository;
         this.adminRepository = adminRepository;
-        this.paymentRepository = paymentRepository;
+        this.bulkDeletionService = bulkDeletionService;
+        this.tariffService = tariffService;
+        this.eventPublisher = eventPublisher;
+        this.userCount = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(userCountTtlSeconds))
+                .build();
     }
 
+    /**
+     * Lists users a page at a time with their meter counts, optionally narrowed to those whose
+     * email, name or phone number starts with {@code search} (case-insensitive).
+     */
     @Transactional(readOnly = true)
-    public List<UserDetailedResponse> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        Map<Long, Long> meterCounts = meterRepository.findAll().stream()
-                .filter(meter -> meter.getUser() != null)
-                .collect(Collectors.groupingBy(meter -> meter.getUser().getId(), Collectors.counting()));
-
-        return users.stream().map(user -> {
-            long meterCount = meterCounts.getOrDefault(user.getId(), 0L);
-            UserDetailedResponse dto = new UserDetailedResponse();
-            dto.setId(user.getId().intValue());
-            dto.setUsername(user.getEmail());
-            dto.setEmail(user.getEmail());
-            dto.setFullName(user.getFullName());
-            dto.setPhoneNumber(user.getPhoneNumber());
-            dto.setCreatedAt(user.getCreatedAt());
-            dto.setActive(user.isActive());
-            dto.setMeterCount(meterCount);
-            return dto;
-        }).collect(Collectors.toList());
+    public PageResponse<UserDetailedResponse> getUsers(String search, Pageable pageable) {
+        if (search == null || search.isBlank()) {
+            return PageResponse.from(userRepository.findSummaries(pageable));
+        }
+        String prefix = search.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return PageResponse.from(userRepository.searchSummaries(prefix, pageable));
+    }
+
+    public long countUsers() {
+        return userCount.get("users", key -> userRepository.count());
     }
 
     @Transactional(readOnly = true)
@@ -81,10 +101,7 @@ public class AdminService {
 
     @Transactional(readOnly = true)
     public List<TransactionDetailDTO> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findAllByTransactionDateBetween(startDate, endDate)
-                .stream()
-                .map(TransactionDetailDTO::fromTransaction)
-                .collect(Collectors.toList());
+        return transactionRepository.findDetailsByTransactionDateBetween(startDate, endDate);
     }
 
     public void logAdminAction(int adminId, String action, String targetEntity, String targetId) {
@@ -97,7 +114,9 @@ public class AdminService {
         User user = userRepository.findById((long) userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
         user.setActive(false);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getTokenVersion()));
     }
 
     @Transactional
@@ -106,46 +125,44 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
         user.setActive(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getTokenVersion()));
     }
 
-    @Transactional
+    /**
+     * Deletes a user with their meters and history. Runs in chunked transactions of its own, so it
+     * must not be called inside one.
+     */
     public void deleteUser(Long id) {
         log.info("Attempting to delete user with ID: {}", id);
-        
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("User not found with id: " + id);
-        }
-        
-        userRepository.deleteById(id);
-        
-        log.info("Successfully deleted user with ID: {}", id);
+
+        long transactions = bulkDeletionService.deleteUser(id);
+
+        log.info("Successfully deleted user with ID: {} and {} transactions", id, transactions);
     }
 
     @Transactional(readOnly = true)
     public List<MeterDetailDTO> getAllMeters() {
-        return meterRepository.findAllWithUser().stream()
-                .map(MeterDetailDTO::fromMeter)
-                .collect(Collectors.toList());
+        return meterRepository.findAllDetails();
     }
 
-    @Transactional
+    /**
+     * Deletes a meter with its transactions and payments, in chunked transactions of its own.
+     */
     public void deleteMeter(long meterId) {
-        Meter meter = meterRepository.findById(meterId)
-                .orElseThrow(() -> new ResourceNotFoundException("Meter not found with id: " + meterId));
-
-        // Manually delete associated transactions and payments
-        List<Transaction> transactions = transactionRepository.findByMeter(meter);
-        for (Transaction tx : transactions) {
-            // If there's a payment linked, delete it first.
-            if (tx.getPayment() != null) {
-                paymentRepository.delete(tx.getPayment());
-            }
-        }
-        // Delete all transactions for the meter
-        transactionRepository.deleteAll(transactions);
+        bulkDeletionService.deleteMeter(meterId);
+    }
 
-        // Finally, delete the meter
-        meterRepository.delete(meter);
+    /**
+     * Moves a meter to another tariff category; its next purchase is priced with that category's tiers.
+     */
+    @Transactional
+    public void updateMeterTariffCategory(long meterId, String category) {
+        if (category == null || category.isBlank() || !tariffService.hasCategory(category)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown tariff category: " + category);
+        }
+        if (meterRepository.updateTariffCategory(meterId, TariffTable.normalize(category)) == 0) {
+            throw new ResourceNotFoundException("Meter not found with id: " + meterId);
+        }
     }
 
     @Transactional
@@ -0,0 +1,271 @@
+package smartcashpower.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import smartcashpower.app.dto.BulkDeletionJobResponse;
+import smartcashpower.app.exception.ResourceNotFoundException;
+import smartcashpower.app.repository.IdempotencyKeyRepository;
+import smartcashpower.app.repository.MeterRepository;
+import smartcashpower.app.repository.PaymentRepository;
+import smartcashpower.app.repository.TransactionRepository;
+import smartcashpower.app.repository.UnitLoadOutboxRepository;
+import smartcashpower.app.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes meters and users with their history.
+ * <p>
+ * History is removed with set-based statements, {@code chunkSize} transactions per database
+ * transaction, so no lock is held for longer than one chunk takes. The meter (or user) is
+ * deactivated first so no new purchases are accepted for it. A final transaction then locks the
+ * row, removes whatever was added meanwhile and deletes it. The daily rollups are debited in the
+ * same transaction as each chunk.
+ */
+@Service
+public class BulkDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkDeletionService.class);
+
+    private final MeterRepository meterRepository;
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final PaymentRepository paymentRepository;
+    private final UnitLoadOutboxRepository unitLoadOutboxRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRollupService transactionRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskExecutor bulkDeletionExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+    private final Cache<String, Job> jobs;
+
+    @Autowired
+    public BulkDeletionService(MeterRepository meterRepository, UserRepository userRepository,
+                               TransactionRepository transactionRepository, PaymentRepository paymentRepository,
+                               UnitLoadOutboxRepository unitLoadOutboxRepository,
+                               IdempotencyKeyRepository idempotencyKeyRepository,
+                               TransactionRollupService transactionRollupService,
+                               ApplicationEventPublisher eventPublisher,
+                               @Qualifier("bulkDeletionExecutor") TaskExecutor bulkDeletionExecutor,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${deletion.chunk-size:500}") int chunkSize,
+                               @Value("${deletion.chunk-pause-ms:20}") long chunkPauseMs,
+                               @Value("${deletion.job-retention-hours:24}") long jobRetentionHours) {
+        this.meterRepository = meterRepository;
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.paymentRepository = paymentRepository;
+        this.unitLoadOutboxRepository = unitLoadOutboxRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRollupService = transactionRollupService;
+        this.eventPublisher = eventPublisher;
+        this.bulkDeletionExecutor = bulkDeletionExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.chunkPauseMs = chunkPauseMs;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(jobRetentionHours))
+                .build();
+    }
+
+    /**
+     * Deletes a meter, its transactions, their payments and any pending unit loads.
+     *
+     * @return the number of transactions deleted
+     * @throws ResourceNotFoundException if the meter does not exist
+     */
+    public long deleteMeter(long meterId) {
+        if (transactionTemplate.execute(status -> meterRepository.deactivate(meterId)) == 0) {
+            throw new ResourceNotFoundException("Meter not found with id: " + meterId);
+        }
+        long deleted = deleteInChunks(limit -> transactionRepository.findIdsByMeterId(meterId, limit));
+        Long remaining = transactionTemplate.execute(status -> meterRepository.lockById(meterId)
+                .map(this::removeMeter)
+                .orElse(0L));
+        return deleted + (remaining == null ? 0 : remaining);
+    }
+
+    /**
+     * Deletes a user together with their meters, transactions and idempotency keys.
+     *
+     * @return the number of transactions deleted
+     * @throws ResourceNotFoundException if the user does not exist
+     */
+    public long deleteUser(long userId) {
+        if (transactionTemplate.execute(status -> userRepository.deactivate(userId)) == 0) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        // Deactivating alone does not stop a cached principal; evict it before the slow part.
+        eventPublisher.publishEvent(UserSecurityChangedEvent.allTokens(userId));
+
+        long deleted = 0;
+        for (Long meterId : meterRepository.findIdsByUserId(userId)) {
+            try {
+                deleted += deleteMeter(meterId);
+            } catch (ResourceNotFoundException e) {
+                // Removed concurrently; nothing left to do for it.
+            }
+        }
+        deleted += deleteInChunks(limit -> transactionRepository.findIdsByUserId(userId, limit));
+        Long remaining = transactionTemplate.execute(status -> {
+            if (userRepository.lockById(userId).isEmpty()) {
+                return 0L;
+            }
+            long removed = 0;
+            for (Long meterId : meterRepository.findIdsByUserId(userId)) {
+                removed += removeMeter(meterId);
+            }
+            transactionRollupService.recordUserRemoved(userId);
+            paymentRepository.deleteByUserId(userId);
+            removed += transactionRepository.deleteByUserId(userId);
+            idempotencyKeyRepository.deleteByUserId(userId);
+            userRepository.deleteByIdInBulk(userId);
+            return removed;
+        });
+        eventPublisher.publishEvent(UserSecurityChangedEvent.allTokens(userId));
+        return deleted + (remaining == null ? 0 : remaining);
+    }
+
+    /**
+     * Queues the deletion of many meters and users and returns immediately. Meters go first, then
+     * users; one failing id is recorded and the job moves on.
+     */
+    public BulkDeletionJobResponse submit(List<Long> meterIds, List<Long> userIds) {
+        Job job = new Job(UUID.randomUUID().toString(), meterIds, userIds);
+        jobs.put(job.id, job);
+        bulkDeletionExecutor.execute(() -> run(job));
+        return job.snapshot();
+    }
+
+    public Optional<BulkDeletionJobResponse> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(Job::snapshot);
+    }
+
+    private void run(Job job) {
+        job.status = "RUNNING";
+        log.info("Bulk deletion {} started: {} meters, {} users", job.id, job.meterIds.size(), job.userIds.size());
+        for (Long meterId : job.meterIds) {
+            try {
+                job.transactionsDeleted.addAndGet(deleteMeter(meterId));
+                job.metersDeleted.incrementAndGet();
+            } catch (RuntimeException e) {
+                job.fail("meter:" + meterId, e);
+            }
+        }
+        for (Long userId : job.userIds) {
+            try {
+                job.transactionsDeleted.addAndGet(deleteUser(userId));
+                job.usersDeleted.incrementAndGet();
+            } catch (RuntimeException e) {
+                job.fail("user:" + userId, e);
+            }
+        }
+        job.finishedAt = LocalDateTime.now();
+        job.status = "COMPLETED";
+        log.info("Bulk deletion {} finished: {} meters, {} users, {} transactions, {} failures", job.id,
+                job.metersDeleted.get(), job.usersDeleted.get(), job.transactionsDeleted.get(), job.failures.size());
+    }
+
+    /**
+     * Deletes transactions a chunk at a time until {@code nextChunk} finds none.
+     */
+    private long deleteInChunks(ChunkQuery nextChunk) {
+        long deleted = 0;
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Integer> ids = nextChunk.next(chunkSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                transactionRollupService.recordRemoved(ids);
+                paymentRepository.deleteByTransactionIds(ids);
+                return transactionRepository.deleteByIds(ids);
+            });
+            if (count == null || count == 0) {
+                return deleted;
+            }
+            deleted += count;
+            if (count < chunkSize) {
+                return deleted;
+            }
+            pause();
+        }
+    }
+
+    /**
+     * Removes what is left of a meter in the caller's transaction; the meter row must be locked.
+     */
+    private long removeMeter(Long meterId) {
+        transactionRollupService.recordMeterRemoved(meterId);
+        paymentRepository.deleteByMeterId(meterId);
+        long removed = transactionRepository.deleteByMeterId(meterId);
+        unitLoadOutboxRepository.deleteByMeterId(meterId);
+        meterRepository.deleteByIdInBulk(meterId);
+        return removed;
+    }
+
+    private void pause() {
+        if (chunkPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkQuery {
+        List<Integer> next(int limit);
+    }
+
+    private static final class Job {
+        private final String id;
+        private final List<Long> meterIds;
+        private final List<Long> userIds;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicInteger metersDeleted = new AtomicInteger();
+        private final AtomicInteger usersDeleted = new AtomicInteger();
+        private final AtomicLong transactionsDeleted = new AtomicLong();
+        private final Map<String, String> failures = new LinkedHashMap<>();
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+
+        private Job(String id, List<Long> meterIds, List<Long> userIds) {
+            this.id = id;
+            this.meterIds = List.copyOf(meterIds);
+            this.userIds = List.copyOf(userIds);
+        }
+
+        private synchronized void fail(String target, RuntimeException e) {
+            log.warn("Bulk deletion {} could not delete {}: {}", id, target, e.getMessage());
+            failures.put(target, e.getMessage());
+        }
+
+        private synchronized BulkDeletionJobResponse snapshot() {
+            return new BulkDeletionJobResponse(id, status, meterIds.size(), userIds.size(), metersDeleted.get(),
+                    usersDeleted.get(), transactionsDeleted.get(), new LinkedHashMap<>(failures), submittedAt, finishedAt);
+        }
+    }
+}
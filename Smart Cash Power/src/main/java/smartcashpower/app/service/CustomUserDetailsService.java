@@ -1,16 +1,30 @@
 package smartcashpower.app.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import smartcashpower.app.config.AuthenticatedUser;
+import smartcashpower.app.dto.CacheStatsResponse;
 import smartcashpower.app.model.User;
 import smartcashpower.app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -20,6 +34,25 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    private final Cache<Long, AuthenticatedUser> principalsById;
+
+    /**
+     * Principals are cached by user id for the JWT filter, which would otherwise read the user row
+     * on every request. Blocked or unknown users are never cached, and entries are evicted as soon
+     * as a {@link UserSecurityChangedEvent} is published; the TTL only bounds staleness of changes
+     * that do not affect access.
+     */
+    public CustomUserDetailsService(@Value("${security.principal-cache.max-size:10000}") long maxSize,
+                                    @Value("${security.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                                    MeterRegistry meterRegistry) {
+        this.principalsById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalsById, "principals");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
@@ -38,7 +71,25 @@ public class CustomUserDetailsService implements UserDetailsService {
         );
     }
 
-    public UserDetails loadUserById(Long id) throws UsernameNotFoundException {
+    public AuthenticatedUser loadUserById(Long id) throws UsernameNotFoundException {
+        return principalsById.get(id, this::loadUserByIdFromDatabase);
+    }
+
+    /**
+     * Loads the user for a token refresh from the database, not the cache, and accepts the refresh
+     * token only if the account is active and its token version is still current. Unlike the
+     * in-memory revocation list, this holds across restarts and on every node.
+     */
+    public AuthenticatedUser loadUserForRefresh(Long id, int tokenVersion) throws AuthenticationException {
+        AuthenticatedUser user = loadUserByIdFromDatabase(id);
+        if (user.getTokenVersion() != tokenVersion) {
+            throw new BadCredentialsException("Refresh token was issued before the last security change");
+        }
+        principalsById.put(id, user);
+        return user;
+    }
+
+    private AuthenticatedUser loadUserByIdFromDatabase(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
 
@@ -46,12 +97,35 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new DisabledException("User account is blocked.");
         }
 
-        List<GrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole()));
+        return AuthenticatedUser.from(user);
+    }
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                authorities
+    @EventListener
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        Long userId = event.userId();
+        principalsById.invalidate(userId);
+        // A request racing the change may reload the old row before it commits; evict again after commit.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principalsById.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public CacheStatsResponse getPrincipalCacheStats() {
+        CacheStats stats = principalsById.stats();
+        return new CacheStatsResponse(
+                principalsById.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.loadCount(),
+                stats.loadFailureCount(),
+                stats.averageLoadPenalty() / 1_000_000.0,
+                stats.evictionCount()
         );
     }
 }
@@ -0,0 +1,83 @@
+package smartcashpower.app.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets from 64µs up to about 8.4s,
+ * plus one overflow bucket. Percentiles are reported as the upper bound of the bucket they fall
+ * in, so they are accurate to within a factor of two. Recording allocates nothing.
+ */
+final class LatencyHistogram {
+
+    private static final int FIRST_BUCKET_SHIFT = 6;
+    private static final int BUCKETS = 18;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        long micros = Math.max(nanos / 1_000, 0);
+        counts[bucketOf(micros)].increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int bucketOf(long micros) {
+        int bits = 64 - Long.numberOfLeadingZeros(micros >> FIRST_BUCKET_SHIFT);
+        return Math.min(bits, BUCKETS);
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        return 1L << (FIRST_BUCKET_SHIFT + bucket);
+    }
+
+    long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    double meanMillis() {
+        long count = count();
+        return count == 0 ? 0 : totalMicros.sum() / 1_000.0 / count;
+    }
+
+    double maxMillis() {
+        return maxMicros.get() / 1_000.0;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given quantile, capped at the observed
+     * maximum.
+     */
+    double percentileMillis(double quantile) {
+        long[] snapshot = new long[counts.length];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundMicros(i), maxMicros.get()) / 1_000.0;
+            }
+        }
+        return maxMillis();
+    }
+}
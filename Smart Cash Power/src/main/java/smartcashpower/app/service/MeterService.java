@@ -1,20 +1,27 @@
 package smartcashpower.app.service;
 
 import smartcashpower.app.model.Meter;
-import smartcashpower.app.model.User;
 import smartcashpower.app.repository.MeterRepository;
 import smartcashpower.app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import smartcashpower.app.dto.MeterResponse;
+import smartcashpower.app.dto.UpdateUnitsRequest;
+import smartcashpower.app.repository.MeterJdbcRepository;
 
-import smartcashpower.app.model.Transaction;
-import smartcashpower.app.repository.PaymentRepository;
-import smartcashpower.app.repository.TransactionRepository;
 import org.springframework.transaction.annotation.Transactional;
 import smartcashpower.app.exception.ResourceNotFoundException;
-import java.nio.file.AccessDeniedException;
+import org.springframework.security.access.AccessDeniedException;
 
 
 @Service
@@ -22,21 +29,28 @@ public class MeterService {
 
     private final MeterRepository meterRepository;
     private final UserRepository userRepository;
-    private final TransactionRepository transactionRepository;
-    private final PaymentRepository paymentRepository;
+    private final MeterJdbcRepository meterJdbcRepository;
+    private final BulkDeletionService bulkDeletionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int settlementBatchSize;
+    private final long settlementMaxAgeMinutes;
 
     @Autowired
-    public MeterService(MeterRepository meterRepository, UserRepository userRepository, TransactionRepository transactionRepository, PaymentRepository paymentRepository) {
+    public MeterService(MeterRepository meterRepository, UserRepository userRepository,
+                        MeterJdbcRepository meterJdbcRepository, BulkDeletionService bulkDeletionService,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${meters.settlement.batch-size:1000}") int settlementBatchSize,
+                        @Value("${meters.settlement.max-age-minutes:60}") long settlementMaxAgeMinutes) {
         this.meterRepository = meterRepository;
         this.userRepository = userRepository;
-        this.transactionRepository = transactionRepository;
-        this.paymentRepository = paymentRepository;
+        this.meterJdbcRepository = meterJdbcRepository;
+        this.bulkDeletionService = bulkDeletionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settlementBatchSize = settlementBatchSize;
+        this.settlementMaxAgeMinutes = settlementMaxAgeMinutes;
     }
 
-    public Meter addMeterToUser(Integer userId, String meterNumber) {
-        User user = userRepository.findById(userId.longValue())
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-
+    public Meter addMeterToUser(Long userId, String meterNumber) {
         if (meterRepository.findByMeterNumber(meterNumber).isPresent()) {
             throw new IllegalArgumentException("Meter with number " + meterNumber + " already exists.");
         }
@@ -46,45 +60,78 @@ public class MeterService {
         newMeter.setCurrentUnits(0.0f);
         newMeter.setUsedUnits(0.0f);
         newMeter.setActive(true);
-        newMeter.setUser(user);
+        newMeter.setLastSettledAt(LocalDateTime.now());
+        newMeter.setUser(userRepository.getReferenceById(userId));
 
         return meterRepository.save(newMeter);
     }
 
-    public List<Meter> getUserMeters(Integer userId) {
-        User user = userRepository.findById(userId.longValue())
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        return meterRepository.findByUser(user);
+    /**
+     * Returns the user's meters with balances projected to now from each meter's consumption rate.
+     * Nothing is written; balances are only settled on purchase, on a meter reading, or by the sweep.
+     */
+    public List<MeterResponse> getUserMeters(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return meterRepository.findByUserId(userId).stream()
+                .map(meter -> MeterResponse.fromMeter(meter, now))
+                .collect(Collectors.toList());
     }
 
-    @Transactional
-    public void deleteMeter(Integer userId, Long meterId) {
-        User user = userRepository.findById(userId.longValue())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        Meter meter = meterRepository.findById(meterId)
-                .orElseThrow(() -> new ResourceNotFoundException("Meter not found with id: " + meterId));
-
-        if (!meter.getUser().getId().equals(user.getId())) {
+    /**
+     * Deletes one of the user's meters with its history, in chunked transactions of its own.
+     */
+    public void deleteMeter(Long userId, Long meterId) {
+        if (!meterRepository.existsById(meterId)) {
+            throw new ResourceNotFoundException("Meter not found with id: " + meterId);
+        }
+        if (meterRepository.findIdsOwnedBy(List.of(meterId), userId).isEmpty()) {
             throw new SecurityException("User does not have permission to delete this meter.");
         }
+        bulkDeletionService.deleteMeter(meterId);
+    }
 
-        List<Transaction> transactions = transactionRepository.findByMeter(meter);
-        for (Transaction tx : transactions) {
-            if (tx.getPayment() != null) {
-                paymentRepository.delete(tx.getPayment());
-            }
+    /**
+     * Applies a meter reading. The stored balance is debited by the units used since the previous
+     * settlement rather than overwritten with the client's balance, which would discard any
+     * purchase credited in between.
+     */
+    @Transactional
+    public void updateMeterUnits(Long meterId, Float usedUnits) {
+        if (meterRepository.recordUsage(meterId, usedUnits, LocalDateTime.now()) == 0 && !meterRepository.existsById(meterId)) {
+            throw new RuntimeException("Meter not found with id: " + meterId);
         }
-        transactionRepository.deleteAll(transactions);
+    }
 
-        meterRepository.delete(meter);
+    /**
+     * Applies readings for several of the user's meters at once: ownership of every meter is checked
+     * with one query and the readings are written as a single JDBC batch in one transaction.
+     */
+    @Transactional
+    public void updateMeterUnitsBatch(Long userId, List<UpdateUnitsRequest> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        if (readings.stream().anyMatch(r -> r.getMeterId() == null || r.getUsedUnits() == null)) {
+            throw new IllegalArgumentException("Every reading needs a meterId and usedUnits.");
+        }
+        Set<Long> meterIds = readings.stream().map(UpdateUnitsRequest::getMeterId).collect(Collectors.toSet());
+        if (meterRepository.findIdsOwnedBy(meterIds, userId).size() != meterIds.size()) {
+            throw new AccessDeniedException("User does not have permission to update all of these meters.");
+        }
+        meterJdbcRepository.recordUsageBatch(readings, LocalDateTime.now());
     }
 
-    public void updateMeterUnits(Long meterId, Float currentUnits, Float usedUnits) {
-        Meter meter = meterRepository.findById(meterId)
-                .orElseThrow(() -> new RuntimeException("Meter not found with id: " + meterId));
-        meter.setCurrentUnits(currentUnits);
-        meter.setUsedUnits(usedUnits);
-        meterRepository.save(meter);
+    /**
+     * Periodically folds projected consumption into the stored balances so that the projection
+     * never has to span a long interval. Runs in small batches to keep row locks short.
+     */
+    @Scheduled(fixedDelayString = "${meters.settlement.sweep-interval-ms:3600000}")
+    public void settleStaleMeters() {
+        int settled;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            settled = transactionTemplate.execute(status -> meterRepository.settleStaleMeters(
+                    now, now.minusMinutes(settlementMaxAgeMinutes), settlementBatchSize));
+        } while (settled == settlementBatchSize);
     }
 }
@@ -0,0 +1,216 @@
+package smartcashpower.app.service;
+
+import smartcashpower.app.dto.TransactionInitiationRequest;
+import smartcashpower.app.dto.TransactionResponse;
+import smartcashpower.app.repository.IdempotencyKeyRepository;
+import smartcashpower.app.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Makes purchase initiation idempotent per {@code Idempotency-Key}.
+ * <p>
+ * Recent keys live in an in-memory store split into independently locked stripes, so unrelated
+ * keys never contend. The first request for a key runs the purchase; duplicates that arrive while
+ * it is running wait on the same future and receive the same {@link TransactionResponse}. Keys
+ * that have left memory (expiry, restart, another node) are answered from the
+ * {@code idempotency_keys} table, whose unique constraint also settles races between nodes.
+ */
+@Service
+public class PurchaseIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchaseIdempotencyService.class);
+    private static final int STRIPES = 64;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRepository transactionRepository;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long memoryTtlNanos;
+    private final long waitTimeoutMillis;
+    private final Duration durableTtl;
+
+    @Autowired
+    public PurchaseIdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                                      TransactionRepository transactionRepository,
+                                      @Value("${idempotency.memory-ttl-minutes:10}") long memoryTtlMinutes,
+                                      @Value("${idempotency.durable-ttl-hours:24}") long durableTtlHours,
+                                      @Value("${idempotency.wait-timeout-ms:30000}") long waitTimeoutMillis) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRepository = transactionRepository;
+        this.memoryTtlNanos = TimeUnit.MINUTES.toNanos(memoryTtlMinutes);
+        this.durableTtl = Duration.ofHours(durableTtlHours);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public static String fingerprint(TransactionInitiationRequest request) {
+        return request.getMeterId() + ":" + request.getAmount() + ":" + request.getMobileMoneyProvider();
+    }
+
+    /**
+     * Runs {@code purchase} at most once for the given user and key and returns its response to
+     * every caller that presents the same key.
+     */
+    public TransactionResponse execute(Long userId, String idempotencyKey, String fingerprint,
+                                       Supplier<TransactionResponse> purchase) {
+        String storeKey = userId + ":" + idempotencyKey;
+        Stripe stripe = stripeFor(storeKey);
+        Entry entry;
+        boolean owner = false;
+
+        stripe.lock.lock();
+        try {
+            entry = stripe.entries.get(storeKey);
+            if (entry == null || entry.isExpired(System.nanoTime())) {
+                entry = new Entry(fingerprint);
+                stripe.entries.put(storeKey, entry);
+                owner = true;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request");
+        }
+        if (!owner) {
+            return await(entry);
+        }
+
+        try {
+            TransactionResponse response = findStored(userId, idempotencyKey, fingerprint)
+                    .orElseGet(() -> runOnce(userId, idempotencyKey, fingerprint, purchase));
+            entry.complete(response, System.nanoTime() + memoryTtlNanos);
+            return response;
+        } catch (RuntimeException e) {
+            // Let the client retry a failed attempt with the same key.
+            entry.future.completeExceptionally(e);
+            stripe.remove(storeKey, entry);
+            throw e;
+        }
+    }
+
+    private TransactionResponse runOnce(Long userId, String idempotencyKey, String fingerprint,
+                                        Supplier<TransactionResponse> purchase) {
+        try {
+            return purchase.get();
+        } catch (DataIntegrityViolationException e) {
+            // Another node committed this key first; answer with its purchase instead.
+            return findStored(userId, idempotencyKey, fingerprint).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<TransactionResponse> findStored(Long userId, String idempotencyKey, String fingerprint) {
+        return idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(stored -> {
+                    if (!stored.getRequestFingerprint().equals(fingerprint)) {
+                        throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                                "Idempotency-Key was already used with a different request");
+                    }
+                    return stored;
+                })
+                .flatMap(stored -> transactionRepository.findByTransactionReference(stored.getTransactionReference()))
+                .map(TransactionResponse::new);
+    }
+
+    private TransactionResponse await(Entry entry) {
+        try {
+            return entry.future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.entries.values().removeIf(entry -> entry.isExpired(now));
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeDurableKeys() {
+        int purged = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(durableTtl));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private Stripe stripeFor(String storeKey) {
+        int h = storeKey.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private void remove(String storeKey, Entry entry) {
+            lock.lock();
+            try {
+                entries.remove(storeKey, entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<TransactionResponse> future = new CompletableFuture<>();
+        private final String fingerprint;
+        // In-flight entries never expire; the deadline is set once the response is known.
+        private volatile long expiresAtNanos = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private void complete(TransactionResponse response, long expiresAtNanos) {
+            this.expiresAtNanos = expiresAtNanos;
+            future.complete(response);
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAtNanos != Long.MAX_VALUE && now - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package smartcashpower.app.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import smartcashpower.app.dto.PurchaseMetricsResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process counters for the purchase path: accepted purchases by provider and amount, final
+ * outcomes by status, each with 1, 5 and 15 minute windows, and the latency of accepting a
+ * purchase.
+ * <p>
+ * Only terminal statuses are counted, so each purchase is finished exactly once: FAILED when the
+ * payment is declined (PurchasePipeline), SUCCESS when its units are loaded (UnitLoadDispatcher)
+ * and DEAD_LETTER when it runs out of attempts (UnitLoadDispatcher, PurchaseRetryService).
+ * PAYMENT_CONFIRMED and REG_FAILED are intermediate and never counted.
+ * <p>
+ * Recording is lock-free and allocates nothing once a provider has been seen. Outcomes are
+ * recorded after the transaction that set them has committed. Counters are per node and reset on
+ * restart; the daily rollups are the durable record.
+ * <p>
+ * The totals are also exported through Micrometer as {@code smartcash.purchases.accepted} and
+ * {@code smartcash.purchases.finished}, and the purchase stages are timed as
+ * {@code smartcash.purchase.stage}, so Prometheus can aggregate them across nodes.
+ */
+@Component
+public class PurchaseMetrics {
+
+    public static final String[] FINAL_STATUSES = {"SUCCESS", "FAILED", "DEAD_LETTER"};
+
+    /** Upper bounds (exclusive, RWF) of the amount buckets; the last bucket has no upper bound. */
+    private static final int[] AMOUNT_BOUNDS = {500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000};
+    // Providers are free text on the request, so distinct names are capped to bound memory.
+    private static final int MAX_PROVIDERS = 32;
+    private static final String OTHER_PROVIDER = "OTHER";
+
+    private final SlidingWindowCounter accepted = new SlidingWindowCounter();
+    private final SlidingWindowCounter[] byFinalStatus = newCounters(FINAL_STATUSES.length);
+    private final SlidingWindowCounter[] byAmount = newCounters(AMOUNT_BOUNDS.length + 1);
+    private final ConcurrentHashMap<String, SlidingWindowCounter> byProvider = new ConcurrentHashMap<>();
+    private final SlidingWindowCounter otherProvider = new SlidingWindowCounter();
+    private final LatencyHistogram initiateLatency = new LatencyHistogram();
+    private final MeterRegistry meterRegistry;
+    private final Timer initiateTimer;
+
+    @Autowired
+    public PurchaseMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.initiateTimer = stageTimer("initiate");
+        FunctionCounter.builder("smartcash.purchases.accepted", accepted, SlidingWindowCounter::total)
+                .register(meterRegistry);
+        for (int i = 0; i < FINAL_STATUSES.length; i++) {
+            FunctionCounter.builder("smartcash.purchases.finished", byFinalStatus[i], SlidingWindowCounter::total)
+                    .tag("status", FINAL_STATUSES[i])
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Returns the timer for one stage of the purchase path.
+     */
+    public final Timer stageTimer(String stage) {
+        return Timer.builder("smartcash.purchase.stage").tag("stage", stage).register(meterRegistry);
+    }
+
+    public void recordAccepted(String provider, int amount) {
+        long second = currentSecond();
+        accepted.increment(second);
+        providerCounter(provider).increment(second);
+        byAmount[amountBucket(amount)].increment(second);
+    }
+
+    public void recordInitiateLatency(long nanos) {
+        initiateLatency.record(nanos);
+        initiateTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts purchases that reached one of the {@link #FINAL_STATUSES}.
+     *
+     * @throws IllegalArgumentException for any other status
+     */
+    public void recordFinished(String status, int count) {
+        if (count <= 0) {
+            return;
+        }
+        for (int i = 0; i < FINAL_STATUSES.length; i++) {
+            if (FINAL_STATUSES[i].equals(status)) {
+                byFinalStatus[i].add(currentSecond(), count);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Not a final purchase status: " + status);
+    }
+
+    public PurchaseMetricsResponse snapshot() {
+        long second = currentSecond();
+        Map<String, PurchaseMetricsResponse.WindowCounts> statuses = new LinkedHashMap<>();
+        for (int i = 0; i < FINAL_STATUSES.length; i++) {
+            statuses.put(FINAL_STATUSES[i], counts(byFinalStatus[i], second));
+        }
+        Map<String, PurchaseMetricsResponse.WindowCounts> providers = new LinkedHashMap<>();
+        byProvider.forEach((name, counter) -> providers.put(name, counts(counter, second)));
+        if (otherProvider.total() > 0) {
+            providers.put(OTHER_PROVIDER, counts(otherProvider, second));
+        }
+        Map<String, PurchaseMetricsResponse.WindowCounts> amounts = new LinkedHashMap<>();
+        for (int i = 0; i < byAmount.length; i++) {
+            amounts.put(amountLabel(i), counts(byAmount[i], second));
+        }
+        PurchaseMetricsResponse.Latency latency = new PurchaseMetricsResponse.Latency(
+                initiateLatency.count(),
+                initiateLatency.meanMillis(),
+                initiateLatency.percentileMillis(0.50),
+                initiateLatency.percentileMillis(0.95),
+                initiateLatency.percentileMillis(0.99),
+                initiateLatency.maxMillis());
+        return new PurchaseMetricsResponse(counts(accepted, second), statuses, providers, amounts, latency);
+    }
+
+    private SlidingWindowCounter providerCounter(String provider) {
+        if (provider == null) {
+            return otherProvider;
+        }
+        SlidingWindowCounter counter = byProvider.get(provider);
+        if (counter != null) {
+            return counter;
+        }
+        if (byProvider.size() >= MAX_PROVIDERS) {
+            return otherProvider;
+        }
+        return byProvider.computeIfAbsent(provider, name -> new SlidingWindowCounter());
+    }
+
+    private static int amountBucket(int amount) {
+        for (int i = 0; i < AMOUNT_BOUNDS.length; i++) {
+            if (amount < AMOUNT_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return AMOUNT_BOUNDS.length;
+    }
+
+    private static String amountLabel(int bucket) {
+        if (bucket == 0) {
+            return "<" + AMOUNT_BOUNDS[0];
+        }
+        if (bucket == AMOUNT_BOUNDS.length) {
+            return ">=" + AMOUNT_BOUNDS[bucket - 1];
+        }
+        return AMOUNT_BOUNDS[bucket - 1] + "-" + (AMOUNT_BOUNDS[bucket] - 1);
+    }
+
+    private static PurchaseMetricsResponse.WindowCounts counts(SlidingWindowCounter counter, long second) {
+        return new PurchaseMetricsResponse.WindowCounts(counter.total(),
+                counter.sum(second, 60), counter.sum(second, 300), counter.sum(second, 900));
+    }
+
+    private static SlidingWindowCounter[] newCounters(int size) {
+        SlidingWindowCounter[] counters = new SlidingWindowCounter[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new SlidingWindowCounter();
+        }
+        return counters;
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1_000;
+    }
+}
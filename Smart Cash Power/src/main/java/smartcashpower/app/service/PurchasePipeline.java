@@ -0,0 +1,168 @@
+package smartcashpower.app.service;
+
+import io.micrometer.core.instrument.Timer;
+import smartcashpower.app.integration.IntegrationService;
+import smartcashpower.app.integration.MoMoRequest;
+import smartcashpower.app.integration.MoMoResponse;
+import smartcashpower.app.integration.ProviderUnavailableException;
+import smartcashpower.app.model.Payment;
+import smartcashpower.app.model.Transaction;
+import smartcashpower.app.model.UnitLoadOutbox;
+import smartcashpower.app.repository.MeterRepository;
+import smartcashpower.app.repository.TransactionRepository;
+import smartcashpower.app.repository.UnitLoadOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Drives an accepted purchase through payment verification.
+ * <p>
+ * The stage reads and writes the database in short transactions; the MoMo call happens between
+ * them so no connection is held while the provider is working. A confirmed payment is handed to
+ * REG through the unit load outbox, written in the same transaction as the COMPLETED payment.
+ * <pre>
+ * PENDING --MoMo ok--> PAYMENT_CONFIRMED --REG ok (UnitLoadDispatcher)--> SUCCESS
+ *    |                        |      ^
+ *    +--MoMo failed--> FAILED |      +--retry due (PurchaseRetryService)--+
+ *                             +--REG failed--> REG_FAILED ----------------+
+ * </pre>
+ * A transaction left PENDING is submitted again by {@link PurchaseRetryService}; one that runs out
+ * of attempts in either state ends in DEAD_LETTER.
+ */
+@Service
+public class PurchasePipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchasePipeline.class);
+
+    private final TransactionRepository transactionRepository;
+    private final UnitLoadOutboxRepository unitLoadOutboxRepository;
+    private final MeterRepository meterRepository;
+    private final IntegrationService integrationService;
+    private final TransactionRollupService transactionRollupService;
+    private final PurchaseMetrics purchaseMetrics;
+    private final Timer verifyPaymentTimer;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor purchaseExecutor;
+
+    @Autowired
+    public PurchasePipeline(TransactionRepository transactionRepository, UnitLoadOutboxRepository unitLoadOutboxRepository,
+                            MeterRepository meterRepository, IntegrationService integrationService, TransactionRollupService transactionRollupService,
+                            PurchaseMetrics purchaseMetrics,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("purchaseExecutor") TaskExecutor purchaseExecutor) {
+        this.transactionRepository = transactionRepository;
+        this.unitLoadOutboxRepository = unitLoadOutboxRepository;
+        this.meterRepository = meterRepository;
+        this.integrationService = integrationService;
+        this.transactionRollupService = transactionRollupService;
+        this.purchaseMetrics = purchaseMetrics;
+        this.verifyPaymentTimer = purchaseMetrics.stageTimer("verify_payment");
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.purchaseExecutor = purchaseExecutor;
+    }
+
+    /**
+     * Queues the transaction for processing once the surrounding transaction has committed, so the
+     * worker never looks for a row that is not visible yet.
+     */
+    public void submitAfterCommit(Integer transactionId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(transactionId);
+                }
+            });
+        } else {
+            submit(transactionId);
+        }
+    }
+
+    public void submit(Integer transactionId) {
+        try {
+            purchaseExecutor.execute(() -> process(transactionId));
+        } catch (TaskRejectedException e) {
+            // The row stays PENDING; the caller can poll and retry later.
+            log.warn("Purchase pipeline is saturated, transaction {} left PENDING", transactionId);
+        }
+    }
+
+    void process(Integer transactionId) {
+        try {
+            verifyPaymentTimer.record(() -> verifyPayment(transactionId));
+        } catch (Exception e) {
+            log.error("Purchase pipeline failed for transaction {}", transactionId, e);
+        }
+    }
+
+    private void verifyPayment(Integer transactionId) {
+        MoMoRequest moMoRequest = transactionTemplate.execute(status -> {
+            Transaction transaction = transactionRepository.findById(transactionId).orElse(null);
+            // Already settled by an earlier run: do not ask the provider again.
+            if (transaction == null || !"PENDING".equals(transaction.getStatus())) {
+                return null;
+            }
+            MoMoRequest request = new MoMoRequest();
+            request.setPhoneNumber(transaction.getUser().getPhoneNumber());
+            request.setAmount(transaction.getAmount());
+            request.setTransactionReference(transaction.getPayment().getPaymentReference());
+            request.setProviderName(transaction.getPayment().getProviderName());
+            return request;
+        });
+        if (moMoRequest == null) {
+            return;
+        }
+
+        MoMoResponse moMoResponse;
+        try {
+            moMoResponse = integrationService.verifyMoMoPayment(moMoRequest);
+        } catch (ProviderUnavailableException e) {
+            // The payment may or may not have gone through; the row stays PENDING to be verified again.
+            log.warn("MoMo unavailable ({}), transaction {} left PENDING", e.getReason(), transactionId);
+            return;
+        }
+
+        String newStatus = moMoResponse.isSuccessful() ? "PAYMENT_CONFIRMED" : "FAILED";
+        boolean applied = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // A retry may have verified the same payment concurrently. The status update decides
+            // which run records its outcome; the other one writes nothing.
+            if (transactionRepository.compareAndSetStatus(transactionId, "PENDING", newStatus) != 1) {
+                return false;
+            }
+            Transaction transaction = transactionRepository.findById(transactionId).orElseThrow();
+            Payment payment = transaction.getPayment();
+            payment.setResponseMessage(moMoResponse.getMessage());
+            // Failover may have sent the payment to another provider; that one settles it.
+            payment.setRoutedProvider(moMoResponse.getProvider());
+            if (moMoResponse.isSuccessful()) {
+                payment.setPaymentStatus("COMPLETED");
+                payment.setConfirmationCode(UUID.randomUUID().toString()); // Mock confirmation
+                unitLoadOutboxRepository.save(UnitLoadOutbox.forTransaction(transaction));
+            } else {
+                payment.setPaymentStatus("FAILED");
+                meterRepository.releaseMonthlyUnits(List.of(transactionId));
+            }
+            transactionRepository.saveAndFlush(transaction);
+            transactionRollupService.recordTransition(transactionId, "PENDING");
+            return true;
+        }));
+        if (!applied) {
+            log.info("Transaction {} was settled by another run, discarding this verification", transactionId);
+        } else if (!moMoResponse.isSuccessful()) {
+            // A confirmed payment is still on its way to SUCCESS or DEAD_LETTER (UnitLoadDispatcher).
+            purchaseMetrics.recordFinished("FAILED", 1);
+        }
+    }
+}
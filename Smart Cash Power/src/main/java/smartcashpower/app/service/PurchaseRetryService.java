@@ -0,0 +1,154 @@
+package smartcashpower.app.service;
+
+import smartcashpower.app.integration.IntegrationService;
+import smartcashpower.app.model.UnitLoadOutbox;
+import smartcashpower.app.repository.MeterRepository;
+import smartcashpower.app.repository.TransactionRepository;
+import smartcashpower.app.repository.UnitLoadOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retries purchases that did not finish.
+ * <p>
+ * A REG_FAILED transaction goes back to PAYMENT_CONFIRMED and its outbox entry back to the queue,
+ * in one transaction, once the entry's next attempt is due; the {@link UnitLoadDispatcher} then
+ * sends it as usual and its status guard still credits the meter at most once. A transaction that
+ * is still PENDING after {@code retry.pending.stale-after-seconds} (the provider was unavailable,
+ * the pipeline was full, or the node restarted) is handed to the {@link PurchasePipeline} again.
+ * If the first run is in fact still working, only one of the two records an outcome.
+ * <p>
+ * Both sweeps read only due rows, through the (status, next attempt) indexes, with
+ * {@code FOR UPDATE SKIP LOCKED}, so the cost does not grow with the size of the tables and
+ * several nodes can sweep side by side. Neither runs while its provider's breaker is open, so an
+ * outage does not use up attempts. Purchases out of attempts are moved to DEAD_LETTER.
+ */
+@Service
+public class PurchaseRetryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchaseRetryService.class);
+
+    private final TransactionRepository transactionRepository;
+    private final UnitLoadOutboxRepository outboxRepository;
+    private final MeterRepository meterRepository;
+    private final IntegrationService integrationService;
+    private final PurchasePipeline purchasePipeline;
+    private final TransactionRollupService transactionRollupService;
+    private final PurchaseMetrics purchaseMetrics;
+    private final RetryPolicy retryPolicy;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public PurchaseRetryService(TransactionRepository transactionRepository, UnitLoadOutboxRepository outboxRepository,
+                                MeterRepository meterRepository, IntegrationService integrationService, PurchasePipeline purchasePipeline,
+                                TransactionRollupService transactionRollupService, PurchaseMetrics purchaseMetrics,
+                                RetryPolicy retryPolicy, PlatformTransactionManager transactionManager,
+                                @Value("${retry.batch-size:200}") int batchSize) {
+        this.transactionRepository = transactionRepository;
+        this.outboxRepository = outboxRepository;
+        this.meterRepository = meterRepository;
+        this.integrationService = integrationService;
+        this.purchasePipeline = purchasePipeline;
+        this.transactionRollupService = transactionRollupService;
+        this.purchaseMetrics = purchaseMetrics;
+        this.retryPolicy = retryPolicy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Requeues due unit loads until none are left. Requeuing only writes rows; the dispatcher
+     * paces the calls to REG.
+     */
+    @Scheduled(fixedDelayString = "${retry.poll-interval-ms:5000}")
+    public void retryFailedUnitLoads() {
+        int requeued = 0;
+        int[] counts;
+        do {
+            if (!integrationService.isRegAvailable()) {
+                break;
+            }
+            counts = transactionTemplate.execute(status -> requeueDueUnitLoads());
+            requeued += counts[1];
+        } while (counts[0] == batchSize);
+        if (requeued > 0) {
+            log.info("Requeued {} failed unit loads", requeued);
+        }
+    }
+
+    /**
+     * Hands one batch of stuck PENDING transactions back to the purchase pipeline. One batch per
+     * run keeps a large backlog from crowding out new purchases.
+     */
+    @Scheduled(fixedDelayString = "${retry.poll-interval-ms:5000}")
+    public void retryStalePending() {
+        if (!integrationService.isMoMoAvailable()) {
+            return;
+        }
+        List<Integer> due = new ArrayList<>();
+        List<Integer> exhausted = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (TransactionRepository.RetryCandidate candidate : transactionRepository.lockDuePending(now, batchSize)) {
+                // The first verification is not a retry, so it counts as one more attempt.
+                if (retryPolicy.isExhausted(candidate.getRetryAttempts() + 1)) {
+                    exhausted.add(candidate.getTransactionId());
+                } else {
+                    due.add(candidate.getTransactionId());
+                }
+            }
+            if (!exhausted.isEmpty()) {
+                transactionRepository.compareAndSetStatuses(exhausted, "PENDING", "DEAD_LETTER");
+                meterRepository.releaseMonthlyUnits(exhausted);
+                transactionRollupService.recordTransitions(exhausted, "PENDING");
+            }
+            if (!due.isEmpty()) {
+                transactionRepository.scheduleRetry(due, now, retryPolicy.getBaseDelaySeconds(),
+                        retryPolicy.getMaxDelaySeconds());
+            }
+        });
+        if (!exhausted.isEmpty()) {
+            log.warn("Gave up verifying the payment of {} PENDING transactions: {}", exhausted.size(), exhausted);
+            purchaseMetrics.recordFinished("DEAD_LETTER", exhausted.size());
+        }
+        for (Integer transactionId : due) {
+            purchasePipeline.submit(transactionId);
+        }
+    }
+
+    /**
+     * @return the number of entries claimed and the number requeued
+     */
+    private int[] requeueDueUnitLoads() {
+        List<UnitLoadOutbox> entries = outboxRepository.lockDueFailed(LocalDateTime.now(), batchSize);
+        List<Long> requeued = new ArrayList<>(entries.size());
+        List<Integer> transactionIds = new ArrayList<>(entries.size());
+        for (UnitLoadOutbox entry : entries) {
+            if (transactionRepository.compareAndSetStatus(entry.getTransactionId(), "REG_FAILED", "PAYMENT_CONFIRMED") == 1) {
+                requeued.add(entry.getId());
+                transactionIds.add(entry.getTransactionId());
+            } else {
+                // The transaction was settled some other way; keep the entry for inspection only.
+                log.warn("Transaction {} is no longer REG_FAILED, not retrying its unit load", entry.getTransactionId());
+                entry.setStatus("DEAD");
+                entry.setNextAttemptAt(null);
+            }
+        }
+        if (!requeued.isEmpty()) {
+            outboxRepository.requeue(requeued);
+            transactionRollupService.recordTransitions(transactionIds, "REG_FAILED");
+        }
+        return new int[]{entries.size(), requeued.size()};
+    }
+}
@@ -0,0 +1,437 @@
+package smartcashpower.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import smartcashpower.app.dto.ReconciliationJobResponse;
+import smartcashpower.app.dto.ReconciliationMismatch;
+import smartcashpower.app.dto.ReconciliationRequest;
+import smartcashpower.app.exception.ResourceNotFoundException;
+import smartcashpower.app.integration.MobileMoneyClient;
+import smartcashpower.app.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reconciles payments against a mobile money provider's daily settlement file.
+ * <p>
+ * A run has three phases, each spread over {@code parallelism} worker threads:
+ * <ol>
+ *   <li>The file is memory-mapped in line-aligned segments and every row is put in a
+ *       {@link SettlementIndex} keyed by its reference. Only offsets are stored, off-heap.</li>
+ *   <li>The provider's payments for the day are read page by page with a keyset scan, and each
+ *       page is matched against the index by a worker. At most two pages per worker are in memory;
+ *       the next page is read while they are matched.</li>
+ *   <li>Index slots are swept for rows no payment matched.</li>
+ * </ol>
+ * Heap use is bounded by the page size and the number of mismatches kept in the job; every
+ * mismatch is written to a CSV report. Payments within {@code dateSlackMinutes} of the day are
+ * read too, so a payment the provider settled on the other side of midnight is still matched, but
+ * only a COMPLETED payment from the day itself is reported as missing from the file. Payments are
+ * read by the {@link MobileMoneyClient} id they were routed to, which after a failover is not the
+ * provider the customer picked.
+ */
+@Service
+public class ReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+
+    // Provider statuses mapped to the payment statuses set by the purchase pipeline.
+    private static final Map<String, String> PROVIDER_STATUSES = Map.ofEntries(
+            Map.entry("SUCCESS", "COMPLETED"),
+            Map.entry("SUCCESSFUL", "COMPLETED"),
+            Map.entry("COMPLETED", "COMPLETED"),
+            Map.entry("SETTLED", "COMPLETED"),
+            Map.entry("FAILED", "FAILED"),
+            Map.entry("FAILURE", "FAILED"),
+            Map.entry("REJECTED", "FAILED"),
+            Map.entry("DECLINED", "FAILED"),
+            Map.entry("CANCELLED", "FAILED"),
+            Map.entry("PENDING", "PENDING"));
+
+    private static final String REPORT_HEADER = "type,payment_reference,file_amount,payment_amount,file_status,payment_status,detail";
+
+    private final PaymentRepository paymentRepository;
+    private final Map<String, MobileMoneyClient> clientsById;
+    private final TaskExecutor reconciliationExecutor;
+    private final Path settlementDir;
+    private final Path reportDir;
+    private final int parallelism;
+    private final int pageSize;
+    private final int maxReportedMismatches;
+    private final Duration dateSlack;
+    private final String referenceColumn;
+    private final String amountColumn;
+    private final String statusColumn;
+    private final Cache<String, Job> jobs;
+
+    @Autowired
+    public ReconciliationService(PaymentRepository paymentRepository, List<MobileMoneyClient> mobileMoneyClients,
+                                 @Qualifier("reconciliationExecutor") TaskExecutor reconciliationExecutor,
+                                 @Value("${reconciliation.settlement-dir:settlements}") String settlementDir,
+                                 @Value("${reconciliation.report-dir:settlements/reports}") String reportDir,
+                                 @Value("${reconciliation.parallelism:0}") int parallelism,
+                                 @Value("${reconciliation.page-size:5000}") int pageSize,
+                                 @Value("${reconciliation.max-reported-mismatches:1000}") int maxReportedMismatches,
+                                 @Value("${reconciliation.date-slack-minutes:30}") long dateSlackMinutes,
+                                 @Value("${reconciliation.csv.reference-column:payment_reference}") String referenceColumn,
+                                 @Value("${reconciliation.csv.amount-column:amount}") String amountColumn,
+                                 @Value("${reconciliation.csv.status-column:status}") String statusColumn,
+                                 @Value("${reconciliation.job-retention-hours:24}") long jobRetentionHours) {
+        this.paymentRepository = paymentRepository;
+        this.clientsById = mobileMoneyClients.stream()
+                .collect(Collectors.toUnmodifiableMap(MobileMoneyClient::id, client -> client));
+        this.reconciliationExecutor = reconciliationExecutor;
+        this.settlementDir = Paths.get(settlementDir).toAbsolutePath().normalize();
+        this.reportDir = Paths.get(reportDir).toAbsolutePath().normalize();
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pageSize = pageSize;
+        this.maxReportedMismatches = maxReportedMismatches;
+        this.dateSlack = Duration.ofMinutes(dateSlackMinutes);
+        this.referenceColumn = referenceColumn;
+        this.amountColumn = amountColumn;
+        this.statusColumn = statusColumn;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(jobRetentionHours))
+                .build();
+    }
+
+    /**
+     * Queues a reconciliation and returns immediately; runs are processed one at a time.
+     *
+     * @throws ResponseStatusException if the provider is unknown or the file name leaves the settlement directory
+     * @throws ResourceNotFoundException if the settlement file does not exist
+     */
+    public ReconciliationJobResponse submit(ReconciliationRequest request) {
+        MobileMoneyClient client = request.getProvider() == null ? null : clientsById.get(request.getProvider());
+        if (client == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "provider must be one of " + new TreeMap<>(clientsById).keySet());
+        }
+        if (request.getSettlementDate() == null || request.getFileName() == null || request.getFileName().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "settlementDate and fileName are required");
+        }
+        Path file = settlementDir.resolve(request.getFileName()).normalize();
+        if (!file.startsWith(settlementDir)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fileName must be inside the settlement directory");
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Settlement file not found: " + request.getFileName());
+        }
+        String jobId = UUID.randomUUID().toString();
+        Job job = new Job(jobId, client, request.getSettlementDate(), request.getFileName(), file,
+                reportDir.resolve("reconciliation-" + jobId + ".csv"));
+        jobs.put(job.id, job);
+        reconciliationExecutor.execute(() -> run(job));
+        return job.snapshot();
+    }
+
+    public Optional<ReconciliationJobResponse> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(Job::snapshot);
+    }
+
+    private void run(Job job) {
+        job.status = "RUNNING";
+        log.info("Reconciliation {} started: {} {} from {}", job.id, job.client.id(), job.settlementDate, job.file);
+        try {
+            reconcile(job);
+            job.status = "COMPLETED";
+        } catch (IOException | RuntimeException e) {
+            log.error("Reconciliation {} failed", job.id, e);
+            job.failure = e.getMessage();
+            job.status = "FAILED";
+        }
+        job.finishedAt = LocalDateTime.now();
+        log.info("Reconciliation {} {}: {} rows, {} payments, {} matched, mismatches {}", job.id, job.status,
+                job.fileRows.sum(), job.paymentsScanned.sum(), job.matched.sum(),
+                job.report == null ? Map.of() : job.report.counts());
+    }
+
+    private void reconcile(Job job) throws IOException {
+        Files.createDirectories(reportDir);
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                     Thread.ofPlatform().name("reconcile-", 0).factory());
+             SettlementFile file = SettlementFile.open(job.file, parallelism, referenceColumn, amountColumn, statusColumn);
+             MismatchReport report = new MismatchReport(job.reportFile, maxReportedMismatches)) {
+            job.report = report;
+
+            LongAdder lines = new LongAdder();
+            runAll(workers, file.segmentCount(), segment -> lines.add(file.countLines(segment)));
+            SettlementIndex index = new SettlementIndex(lines.sum());
+
+            runAll(workers, file.segmentCount(), segment -> indexSegment(job, file, index, report, segment));
+            scanPayments(job, file, index, report, workers);
+            runAll(workers, parallelism, part -> {
+                SettlementFile.Row row = new SettlementFile.Row();
+                index.forEachUnmatched(index.capacity() * part / parallelism, index.capacity() * (part + 1) / parallelism,
+                        offset -> {
+                            file.read(offset, row);
+                            report.add(new ReconciliationMismatch("MISSING_IN_DB", row.reference(),
+                                    amount(row.amountMinor()), null, row.status(), null, null));
+                        });
+            });
+        }
+    }
+
+    private void indexSegment(Job job, SettlementFile file, SettlementIndex index, MismatchReport report, int segment) {
+        SettlementFile.Row other = new SettlementFile.Row();
+        file.forEachRow(segment, new SettlementFile.Row(), row -> {
+            job.fileRows.increment();
+            if (row.error() != null) {
+                report.add(new ReconciliationMismatch("MALFORMED_ROW", null, null, null, null, null,
+                        "row at byte " + row.offset() + ": " + row.error()));
+                return;
+            }
+            long existing = index.insert(row.referenceHash(), row.offset(),
+                    offset -> file.read(offset, other).sameReference(row));
+            if (existing >= 0) {
+                report.add(new ReconciliationMismatch("DUPLICATE_IN_FILE", row.reference(), amount(row.amountMinor()),
+                        null, row.status(), null, "rows at bytes " + existing + " and " + row.offset()));
+            }
+        });
+    }
+
+    /**
+     * Reads the provider's payments in (payment date, reference) order, one keyset page at a time,
+     * and hands each page to a worker.
+     */
+    private void scanPayments(Job job, SettlementFile file, SettlementIndex index, MismatchReport report,
+                              ExecutorService workers) {
+        LocalDateTime dayStart = job.settlementDate.atStartOfDay();
+        LocalDateTime dayEnd = job.settlementDate.plusDays(1).atStartOfDay();
+        int maxPagesInFlight = parallelism * 2;
+        Semaphore pagesInFlight = new Semaphore(maxPagesInFlight);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            LocalDateTime afterDate = dayStart.minus(dateSlack);
+            String afterReference = "";
+            while (failure.get() == null) {
+                List<PaymentRepository.SettlementPayment> page = paymentRepository.findSettlementPage(
+                        job.client.id(), afterDate, afterReference, dayEnd.plus(dateSlack), pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                PaymentRepository.SettlementPayment last = page.get(page.size() - 1);
+                afterDate = last.getPaymentDate();
+                afterReference = last.getPaymentReference();
+                pagesInFlight.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        matchPage(job, file, index, report, page, dayStart, dayEnd);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        pagesInFlight.release();
+                    }
+                });
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+        } finally {
+            pagesInFlight.acquireUninterruptibly(maxPagesInFlight);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void matchPage(Job job, SettlementFile file, SettlementIndex index, MismatchReport report,
+                           List<PaymentRepository.SettlementPayment> page, LocalDateTime dayStart, LocalDateTime dayEnd) {
+        SettlementFile.Row row = new SettlementFile.Row();
+        for (PaymentRepository.SettlementPayment payment : page) {
+            job.paymentsScanned.increment();
+            String reference = payment.getPaymentReference();
+            byte[] bytes = reference.getBytes(StandardCharsets.UTF_8);
+            long slot = index.find(SettlementFile.hash(bytes), offset -> file.read(offset, row).referenceEquals(bytes));
+            BigDecimal paymentAmount = payment.getAmount() == null ? null
+                    : amount(Math.round(payment.getAmount() * 100.0));
+            if (slot < 0) {
+                boolean onDay = !payment.getPaymentDate().isBefore(dayStart) && payment.getPaymentDate().isBefore(dayEnd);
+                if (onDay && "COMPLETED".equals(payment.getPaymentStatus())) {
+                    report.add(new ReconciliationMismatch("MISSING_IN_FILE", reference, null, paymentAmount, null,
+                            payment.getPaymentStatus(), null));
+                }
+                continue;
+            }
+            if (!index.markMatched(slot)) {
+                report.add(new ReconciliationMismatch("DUPLICATE_IN_DB", reference, null, paymentAmount, null,
+                        payment.getPaymentStatus(), null));
+                continue;
+            }
+            job.matched.increment();
+            file.read(index.offset(slot), row);
+            BigDecimal fileAmount = amount(row.amountMinor());
+            String fileStatus = row.status();
+            if (paymentAmount == null || fileAmount.compareTo(paymentAmount) != 0) {
+                report.add(new ReconciliationMismatch("AMOUNT", reference, fileAmount, paymentAmount, fileStatus,
+                        payment.getPaymentStatus(), null));
+            }
+            String normalized = fileStatus.toUpperCase(Locale.ROOT);
+            if (!PROVIDER_STATUSES.getOrDefault(normalized, normalized).equals(payment.getPaymentStatus())) {
+                report.add(new ReconciliationMismatch("STATUS", reference, fileAmount, paymentAmount, fileStatus,
+                        payment.getPaymentStatus(), null));
+            }
+        }
+    }
+
+    /**
+     * Runs {@code task} for 0..{@code count}-1 on the workers and waits for all of them.
+     */
+    private static void runAll(ExecutorService workers, int count, IntConsumer task) {
+        List<Callable<Void>> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int part = i;
+            calls.add(() -> {
+                task.accept(part);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : workers.invokeAll(calls)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static BigDecimal amount(long minorUnits) {
+        return minorUnits == Long.MIN_VALUE ? null : BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    /**
+     * Writes every mismatch to a CSV file and keeps counts and the first few for the job.
+     */
+    private static final class MismatchReport implements Closeable {
+
+        private final BufferedWriter writer;
+        private final int maxKept;
+        private final List<ReconciliationMismatch> kept = new ArrayList<>();
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+
+        private MismatchReport(Path file, int maxKept) throws IOException {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            this.maxKept = maxKept;
+            writer.write(REPORT_HEADER);
+            writer.newLine();
+        }
+
+        private synchronized void add(ReconciliationMismatch mismatch) {
+            counts.merge(mismatch.getType(), 1L, Long::sum);
+            if (kept.size() < maxKept) {
+                kept.add(mismatch);
+            }
+            try {
+                writer.write(String.join(",", mismatch.getType(), csv(mismatch.getPaymentReference()),
+                        csv(mismatch.getFileAmount()), csv(mismatch.getPaymentAmount()), csv(mismatch.getFileStatus()),
+                        csv(mismatch.getPaymentStatus()), csv(mismatch.getDetail())));
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private synchronized Map<String, Long> counts() {
+            return new LinkedHashMap<>(counts);
+        }
+
+        private synchronized List<ReconciliationMismatch> kept() {
+            return new ArrayList<>(kept);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+
+        private static String csv(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final MobileMoneyClient client;
+        private final LocalDate settlementDate;
+        private final String fileName;
+        private final Path file;
+        private final Path reportFile;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final LongAdder fileRows = new LongAdder();
+        private final LongAdder paymentsScanned = new LongAdder();
+        private final LongAdder matched = new LongAdder();
+        private volatile MismatchReport report;
+        private volatile String status = "QUEUED";
+        private volatile String failure;
+        private volatile LocalDateTime finishedAt;
+
+        private Job(String id, MobileMoneyClient client, LocalDate settlementDate, String fileName, Path file,
+                    Path reportFile) {
+            this.id = id;
+            this.client = client;
+            this.settlementDate = settlementDate;
+            this.fileName = fileName;
+            this.file = file;
+            this.reportFile = reportFile;
+        }
+
+        private ReconciliationJobResponse snapshot() {
+            MismatchReport current = report;
+            return new ReconciliationJobResponse(id, status, client.id(), settlementDate, fileName, fileRows.sum(),
+                    paymentsScanned.sum(), matched.sum(), current == null ? Map.of() : current.counts(),
+                    current == null ? List.of() : current.kept(), current == null ? null : reportFile.toString(),
+                    failure, submittedAt, finishedAt);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package smartcashpower.app.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When a purchase that did not finish is tried again, and when it is given up on.
+ * <p>
+ * The n-th retry waits {@code baseDelay * 2^(n-1)}, capped at {@code maxDelay}, with equal
+ * jitter: half of the delay is fixed and the other half random, so a burst of failures does not
+ * come back as a burst of retries. After {@code maxAttempts} attempts the purchase is moved to
+ * DEAD_LETTER for someone to look at.
+ */
+@Component
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Duration pendingStaleAfter;
+
+    public RetryPolicy(@Value("${retry.max-attempts:6}") int maxAttempts,
+                       @Value("${retry.base-delay-seconds:30}") long baseDelaySeconds,
+                       @Value("${retry.max-delay-seconds:1800}") long maxDelaySeconds,
+                       @Value("${retry.pending.stale-after-seconds:120}") long pendingStaleAfterSeconds) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = Duration.ofSeconds(baseDelaySeconds);
+        this.maxDelay = Duration.ofSeconds(maxDelaySeconds);
+        this.pendingStaleAfter = Duration.ofSeconds(pendingStaleAfterSeconds);
+    }
+
+    public boolean isExhausted(int attempts) {
+        return attempts >= maxAttempts;
+    }
+
+    /**
+     * When to try again after {@code attempts} attempts have been made.
+     */
+    public LocalDateTime nextAttemptAt(int attempts, LocalDateTime now) {
+        long delayMs = delayMillis(attempts);
+        long half = delayMs / 2;
+        return now.plusNanos((half + ThreadLocalRandom.current().nextLong(delayMs - half + 1)) * 1_000_000L);
+    }
+
+    /**
+     * When a purchase accepted at {@code acceptedAt} and still PENDING counts as stuck.
+     */
+    public LocalDateTime pendingStaleAt(LocalDateTime acceptedAt) {
+        return acceptedAt.plus(pendingStaleAfter);
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    double getBaseDelaySeconds() {
+        return baseDelay.toMillis() / 1000.0;
+    }
+
+    double getMaxDelaySeconds() {
+        return maxDelay.toMillis() / 1000.0;
+    }
+
+    private long delayMillis(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        long delay = baseDelay.toMillis() << doublings;
+        return delay < 0 || delay > maxDelay.toMillis() ? maxDelay.toMillis() : delay;
+    }
+}
@@ -0,0 +1,399 @@
+package smartcashpower.app.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A provider settlement file, memory-mapped in line-aligned segments that can be read in parallel.
+ * <p>
+ * The file is CSV with a header row. The reference, amount and status columns are found by name;
+ * other columns are ignored. Fields may be wrapped in double quotes but may not contain commas.
+ * Amounts are decimal RWF. A row is addressed by the file offset at which it starts, so an index
+ * over the file needs no copy of its contents.
+ */
+final class SettlementFile implements AutoCloseable {
+
+    // A single mapping cannot exceed 2 GiB; larger files get more segments.
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int HEADER_LIMIT = 64 * 1024;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final FileChannel channel;
+    private final long[] segmentStarts;
+    private final MappedByteBuffer[] segments;
+    private final int referenceColumn;
+    private final int amountColumn;
+    private final int statusColumn;
+    private final int requiredColumns;
+
+    private SettlementFile(FileChannel channel, int minSegments, String referenceHeader, String amountHeader,
+                           String statusHeader) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(size, HEADER_LIMIT));
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+            // keep reading until the buffer is full or the file ends
+        }
+        int headerEnd = 0;
+        while (headerEnd < head.position() && head.get(headerEnd) != '\n') {
+            headerEnd++;
+        }
+        if (headerEnd == head.position() && size > HEADER_LIMIT) {
+            throw new IllegalArgumentException("Settlement file header is longer than " + HEADER_LIMIT + " bytes");
+        }
+        List<String> columns = Arrays.stream(new String(head.array(), 0, headerEnd, StandardCharsets.UTF_8)
+                        .replace("\uFEFF", "").split(","))
+                .map(column -> unquote(column).toLowerCase(Locale.ROOT))
+                .toList();
+        this.referenceColumn = column(columns, referenceHeader);
+        this.amountColumn = column(columns, amountHeader);
+        this.statusColumn = column(columns, statusHeader);
+        this.requiredColumns = Math.max(referenceColumn, Math.max(amountColumn, statusColumn)) + 1;
+
+        long dataStart = Math.min(size, headerEnd + 1L);
+        long length = size - dataStart;
+        int pieces = (int) Math.max(Math.max(minSegments, 1), (length + MAX_SEGMENT_BYTES - 1) / MAX_SEGMENT_BYTES);
+        List<Long> starts = new ArrayList<>(pieces);
+        List<MappedByteBuffer> maps = new ArrayList<>(pieces);
+        long start = dataStart;
+        for (int i = 1; i <= pieces && start < size; i++) {
+            long end = i == pieces ? size : lineStartAtOrAfter(Math.max(start, dataStart + length * i / pieces), size);
+            if (end > start) {
+                starts.add(start);
+                maps.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        this.segmentStarts = starts.stream().mapToLong(Long::longValue).toArray();
+        this.segments = maps.toArray(MappedByteBuffer[]::new);
+    }
+
+    /**
+     * Maps {@code path} in at least {@code minSegments} segments (fewer if the file is too small).
+     *
+     * @throws IllegalArgumentException if the header lacks one of the named columns
+     */
+    static SettlementFile open(Path path, int minSegments, String referenceHeader, String amountHeader,
+                               String statusHeader) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SettlementFile(channel, minSegments, referenceHeader, amountHeader, statusHeader);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * An upper bound on the number of rows in a segment.
+     */
+    long countLines(int segment) {
+        MappedByteBuffer buffer = segments[segment];
+        long lines = 1;
+        for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Parses every non-blank row of a segment into {@code row} and hands it to {@code visitor}.
+     * Rows that cannot be parsed are passed too, with {@link Row#error()} set.
+     */
+    void forEachRow(int segment, Row row, RowVisitor visitor) {
+        MappedByteBuffer buffer = segments[segment];
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                parse(row, segment, lineStart, contentEnd);
+                visitor.visit(row);
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Parses the row starting at {@code offset} into {@code row}.
+     */
+    Row read(long offset, Row row) {
+        int segment = Arrays.binarySearch(segmentStarts, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        MappedByteBuffer buffer = segments[segment];
+        int start = (int) (offset - segmentStarts[segment]);
+        int end = start;
+        while (end < buffer.limit() && buffer.get(end) != '\n') {
+            end++;
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        parse(row, segment, start, end);
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mappings stay valid until they are garbage collected; closing only releases the descriptor.
+        channel.close();
+    }
+
+    private void parse(Row row, int segment, int start, int end) {
+        MappedByteBuffer buffer = segments[segment];
+        row.buffer = buffer;
+        row.offset = segmentStarts[segment] + start;
+        row.error = null;
+        row.referenceStart = row.referenceEnd = start;
+        row.amountStart = row.amountEnd = start;
+        row.statusStart = row.statusEnd = start;
+        int column = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end && column < requiredColumns; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                int from = fieldStart;
+                int to = i;
+                while (from < to && isPadding(buffer.get(from))) {
+                    from++;
+                }
+                while (to > from && isPadding(buffer.get(to - 1))) {
+                    to--;
+                }
+                if (column == referenceColumn) {
+                    row.referenceStart = from;
+                    row.referenceEnd = to;
+                }
+                if (column == amountColumn) {
+                    row.amountStart = from;
+                    row.amountEnd = to;
+                }
+                if (column == statusColumn) {
+                    row.statusStart = from;
+                    row.statusEnd = to;
+                }
+                column++;
+                fieldStart = i + 1;
+            }
+        }
+        if (column < requiredColumns) {
+            row.error = "expected at least " + requiredColumns + " columns";
+        } else if (row.referenceStart == row.referenceEnd) {
+            row.error = "empty reference";
+        } else {
+            row.amountMinor = parseMinorUnits(buffer, row.amountStart, row.amountEnd);
+            if (row.amountMinor == Long.MIN_VALUE) {
+                row.error = "invalid amount";
+            }
+        }
+    }
+
+    /**
+     * Parses a decimal amount into hundredths, rounding half up past the second decimal.
+     *
+     * @return the amount, or {@code Long.MIN_VALUE} if the field is not a number
+     */
+    private static long parseMinorUnits(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean negative = i < end && buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long whole = 0;
+        int wholeDigits = 0;
+        while (i < end && isDigit(buffer.get(i))) {
+            if (++wholeDigits > 15) {
+                return Long.MIN_VALUE;
+            }
+            whole = whole * 10 + (buffer.get(i++) - '0');
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < end && buffer.get(i) == '.') {
+            i++;
+            while (i < end && isDigit(buffer.get(i))) {
+                int digit = buffer.get(i++) - '0';
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + digit;
+                } else if (fractionDigits == 2) {
+                    roundUp = digit >= 5;
+                }
+                fractionDigits++;
+            }
+        }
+        if (i != end || wholeDigits + fractionDigits == 0) {
+            return Long.MIN_VALUE;
+        }
+        for (int scale = fractionDigits; scale < 2; scale++) {
+            fraction *= 10;
+        }
+        long minor = whole * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -minor : minor;
+    }
+
+    private long lineStartAtOrAfter(long position, long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        if (channel.read(chunk, position - 1) > 0 && chunk.get(0) == '\n') {
+            return position;
+        }
+        long scanned = position;
+        while (true) {
+            chunk.clear();
+            int read = channel.read(chunk, scanned);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (chunk.get(i) == '\n') {
+                    return scanned + i + 1;
+                }
+            }
+            scanned += read;
+        }
+    }
+
+    private static int column(List<String> columns, String name) {
+        int index = columns.indexOf(name.toLowerCase(Locale.ROOT));
+        if (index < 0) {
+            throw new IllegalArgumentException("Settlement file has no '" + name + "' column");
+        }
+        return index;
+    }
+
+    private static String unquote(String field) {
+        String trimmed = field.strip();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private static boolean isPadding(byte b) {
+        return b == ' ' || b == '\t' || b == '"';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes of a reference; the same hash is computed for database rows.
+     */
+    static long hash(byte[] reference) {
+        long hash = FNV_OFFSET;
+        for (byte b : reference) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @FunctionalInterface
+    interface RowVisitor {
+        void visit(Row row);
+    }
+
+    /**
+     * A parsed row. Fields are positions in the mapped segment; nothing is copied until a field is
+     * read as a string. One instance is reused per thread.
+     */
+    static final class Row {
+
+        private ByteBuffer buffer;
+        private long offset;
+        private int referenceStart;
+        private int referenceEnd;
+        private int amountStart;
+        private int amountEnd;
+        private int statusStart;
+        private int statusEnd;
+        private long amountMinor;
+        private String error;
+
+        long offset() {
+            return offset;
+        }
+
+        String error() {
+            return error;
+        }
+
+        long amountMinor() {
+            return amountMinor;
+        }
+
+        long referenceHash() {
+            long hash = FNV_OFFSET;
+            for (int i = referenceStart; i < referenceEnd; i++) {
+                hash = (hash ^ (buffer.get(i) & 0xff)) * FNV_PRIME;
+            }
+            return hash;
+        }
+
+        boolean referenceEquals(byte[] reference) {
+            if (reference.length != referenceEnd - referenceStart) {
+                return false;
+            }
+            for (int i = 0; i < reference.length; i++) {
+                if (buffer.get(referenceStart + i) != reference[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean sameReference(Row other) {
+            if (referenceEnd - referenceStart != other.referenceEnd - other.referenceStart) {
+                return false;
+            }
+            for (int i = 0; i < referenceEnd - referenceStart; i++) {
+                if (buffer.get(referenceStart + i) != other.buffer.get(other.referenceStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String reference() {
+            return text(referenceStart, referenceEnd);
+        }
+
+        String amount() {
+            return text(amountStart, amountEnd);
+        }
+
+        String status() {
+            return text(statusStart, statusEnd);
+        }
+
+        private String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
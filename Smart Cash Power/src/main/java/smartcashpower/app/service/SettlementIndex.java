@@ -0,0 +1,165 @@
+package smartcashpower.app.service;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * An open-addressing hash table from settlement references to row offsets, kept off-heap.
+ * <p>
+ * Each slot is two longs: the reference hash and the row offset plus one, with the top bit set once
+ * a payment has matched the row. Keys are only 64-bit hashes, so callers confirm a hit by comparing
+ * the reference at the stored offset. The table lives in a deleted temporary file mapped into
+ * memory, so it takes no heap and the kernel can page it out under pressure. Slots are claimed with
+ * compare-and-set, so segments of a file can be indexed by several threads at once.
+ */
+final class SettlementIndex {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SLOT_BYTES = 16;
+    private static final int SLOTS_PER_BUFFER_SHIFT = 22; // 64 MiB per mapping
+    private static final long MATCHED = 1L << 63;
+
+    private final MappedByteBuffer[] buffers;
+    private final long capacity;
+    private final long mask;
+
+    /**
+     * @param maxEntries an upper bound on the number of rows that will be inserted
+     */
+    SettlementIndex(long maxEntries) throws IOException {
+        // At most half full, so probe sequences stay short.
+        this.capacity = Math.max(1024, Long.highestOneBit(Math.max(maxEntries, 1) * 2 - 1) << 1);
+        this.mask = capacity - 1;
+        long slotsPerBuffer = 1L << SLOTS_PER_BUFFER_SHIFT;
+        this.buffers = new MappedByteBuffer[(int) ((capacity + slotsPerBuffer - 1) / slotsPerBuffer)];
+        Path file = Files.createTempFile("settlement-index-", ".bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < buffers.length; i++) {
+                long slots = Math.min(slotsPerBuffer, capacity - i * slotsPerBuffer);
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * slotsPerBuffer * SLOT_BYTES, slots * SLOT_BYTES);
+            }
+        } finally {
+            // The mappings outlive the file name; its space is freed once they are collected.
+            Files.deleteIfExists(file);
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Inserts a row unless a row with the same reference is already present.
+     *
+     * @param sameReference tells whether the row at a given offset has the same reference
+     * @return -1 if the row was inserted, else the offset of the row already present
+     */
+    long insert(long hash, long offset, LongPredicate sameReference) {
+        long key = hash == 0 ? 1 : hash;
+        long slot = mix(key) & mask;
+        for (long probes = 0; probes < capacity; ) {
+            MappedByteBuffer buffer = buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)];
+            int index = byteIndex(slot);
+            long current = (long) LONGS.getVolatile(buffer, index);
+            if (current == 0) {
+                if (LONGS.compareAndSet(buffer, index, 0L, key)) {
+                    LONGS.setRelease(buffer, index + 8, offset + 1);
+                    return -1;
+                }
+                continue; // lost the slot to another thread; look at what it wrote
+            }
+            if (current == key) {
+                long existing = awaitValue(buffer, index + 8) & ~MATCHED;
+                if (sameReference.test(existing - 1)) {
+                    return existing - 1;
+                }
+            }
+            slot = (slot + 1) & mask;
+            probes++;
+        }
+        throw new IllegalStateException("Settlement index is full");
+    }
+
+    /**
+     * Finds the slot of a reference.
+     *
+     * @param sameReference tells whether the row at a given offset has the wanted reference
+     * @return the slot, or -1 if the reference is not in the table
+     */
+    long find(long hash, LongPredicate sameReference) {
+        long key = hash == 0 ? 1 : hash;
+        long slot = mix(key) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            MappedByteBuffer buffer = buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)];
+            int index = byteIndex(slot);
+            long current = (long) LONGS.getVolatile(buffer, index);
+            if (current == 0) {
+                return -1;
+            }
+            if (current == key && sameReference.test(offset(slot))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    long offset(long slot) {
+        MappedByteBuffer buffer = buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)];
+        return ((long) LONGS.getAcquire(buffer, byteIndex(slot) + 8) & ~MATCHED) - 1;
+    }
+
+    /**
+     * Marks a slot as matched.
+     *
+     * @return false if it was already matched
+     */
+    boolean markMatched(long slot) {
+        MappedByteBuffer buffer = buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)];
+        return ((long) LONGS.getAndBitwiseOr(buffer, byteIndex(slot) + 8, MATCHED) & MATCHED) == 0;
+    }
+
+    /**
+     * Passes the offset of every unmatched row in slots {@code [from, to)} to {@code consumer}.
+     */
+    void forEachUnmatched(long from, long to, LongConsumer consumer) {
+        for (long slot = from; slot < to; slot++) {
+            MappedByteBuffer buffer = buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)];
+            int index = byteIndex(slot);
+            if ((long) LONGS.getAcquire(buffer, index) == 0) {
+                continue;
+            }
+            long value = (long) LONGS.getAcquire(buffer, index + 8);
+            if ((value & MATCHED) == 0) {
+                consumer.accept(value - 1);
+            }
+        }
+    }
+
+    private static long awaitValue(MappedByteBuffer buffer, int index) {
+        // The key is published before the offset; the writer is at most a few instructions behind.
+        long value;
+        while ((value = (long) LONGS.getAcquire(buffer, index)) == 0) {
+            Thread.onSpinWait();
+        }
+        return value;
+    }
+
+    private static int byteIndex(long slot) {
+        return (int) (slot & ((1L << SLOTS_PER_BUFFER_SHIFT) - 1)) * SLOT_BYTES;
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,60 @@
+package smartcashpower.app.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free event counter with a running total and per-second slots covering the last
+ * {@link #MAX_WINDOW_SECONDS}.
+ * <p>
+ * Each slot packs the second it belongs to (upper 32 bits) and its count (lower 32 bits) into one
+ * long, so a slot is claimed for a new second and incremented by the same compare-and-set and no
+ * increment can be lost to a concurrent reset. Recording allocates nothing.
+ */
+final class SlidingWindowCounter {
+
+    static final int MAX_WINDOW_SECONDS = 900;
+
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final LongAdder total = new LongAdder();
+    private final AtomicLongArray slots = new AtomicLongArray(MAX_WINDOW_SECONDS);
+
+    void increment(long second) {
+        add(second, 1);
+    }
+
+    void add(long second, int events) {
+        total.add(events);
+        int index = (int) (second % MAX_WINDOW_SECONDS);
+        long stamp = second << 32;
+        while (true) {
+            long current = slots.get(index);
+            long next = (current & ~COUNT_MASK) == stamp ? current + events : stamp | events;
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    long total() {
+        return total.sum();
+    }
+
+    /**
+     * Counts the events recorded in the {@code windowSeconds} seconds up to and including
+     * {@code second}.
+     */
+    long sum(long second, int windowSeconds) {
+        long oldest = second - windowSeconds;
+        long sum = 0;
+        for (int i = 0; i < MAX_WINDOW_SECONDS; i++) {
+            long slot = slots.get(i);
+            long slotSecond = slot >>> 32;
+            if (slotSecond > oldest && slotSecond <= second) {
+                sum += slot & COUNT_MASK;
+            }
+        }
+        return sum;
+    }
+}
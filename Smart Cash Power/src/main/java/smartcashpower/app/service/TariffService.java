@@ -0,0 +1,110 @@
+package smartcashpower.app.service;
+
+import jakarta.annotation.PostConstruct;
+import smartcashpower.app.dto.TariffTierDTO;
+import smartcashpower.app.model.Meter;
+import smartcashpower.app.model.TariffRule;
+import smartcashpower.app.repository.TariffRuleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Prices purchases from the tariff rules in the database.
+ * <p>
+ * The rules are compiled into a {@link TariffTable} that is published through a volatile field:
+ * a reload builds a complete new table and swaps it in with one write, so purchase threads read a
+ * consistent table without locking and never query the database to price a purchase. Every node
+ * reloads on start, on every change made through it and every {@code tariff.reload-interval-ms}.
+ * Without any rules every meter pays {@code tariff.default-price-per-unit}.
+ */
+@Service
+public class TariffService {
+
+    private static final Logger log = LoggerFactory.getLogger(TariffService.class);
+
+    private final TariffRuleRepository tariffRuleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final float defaultPricePerUnit;
+    private volatile TariffTable table;
+
+    @Autowired
+    public TariffService(TariffRuleRepository tariffRuleRepository, PlatformTransactionManager transactionManager,
+                         @Value("${tariff.default-price-per-unit:100}") float defaultPricePerUnit) {
+        this.tariffRuleRepository = tariffRuleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultPricePerUnit = defaultPricePerUnit;
+        this.table = TariffTable.flat(Meter.DEFAULT_TARIFF_CATEGORY, defaultPricePerUnit);
+    }
+
+    /**
+     * The units {@code amount} RWF buys for a meter, given the units it has already bought this month.
+     */
+    public float unitsFor(String category, float monthlyUnits, float amount) {
+        return table.unitsFor(category, monthlyUnits, amount);
+    }
+
+    public boolean hasCategory(String category) {
+        return table.hasCategory(category);
+    }
+
+    public List<TariffTierDTO> getTiers() {
+        return table.tiers();
+    }
+
+    /**
+     * Rebuilds the table from the database. Rules that do not compile are logged and the current
+     * table is kept.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${tariff.reload-interval-ms:60000}", initialDelayString = "${tariff.reload-interval-ms:60000}")
+    public void reload() {
+        List<TariffTierDTO> tiers = tariffRuleRepository.findAll().stream()
+                .map(rule -> new TariffTierDTO(rule.getCategory(), rule.getFromUnits(), rule.getPricePerUnit()))
+                .toList();
+        try {
+            table = tiers.isEmpty()
+                    ? TariffTable.flat(Meter.DEFAULT_TARIFF_CATEGORY, defaultPricePerUnit)
+                    : TariffTable.compile(tiers, Meter.DEFAULT_TARIFF_CATEGORY);
+        } catch (IllegalArgumentException e) {
+            log.error("Tariff rules do not compile, keeping the current tariff: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces every tariff rule. The rules are compiled before anything is written, so invalid
+     * rules are rejected and the stored tariff stays as it was.
+     *
+     * @throws ResponseStatusException with 400 if the rules do not compile
+     */
+    public List<TariffTierDTO> replaceTiers(List<TariffTierDTO> tiers) {
+        TariffTable compiled;
+        try {
+            compiled = TariffTable.compile(tiers, Meter.DEFAULT_TARIFF_CATEGORY);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            tariffRuleRepository.deleteAllInBatch();
+            tariffRuleRepository.saveAll(compiled.tiers().stream().map(tier -> {
+                TariffRule rule = new TariffRule();
+                rule.setCategory(tier.getCategory());
+                rule.setFromUnits(tier.getFromUnits());
+                rule.setPricePerUnit(tier.getPricePerUnit());
+                return rule;
+            }).toList());
+        });
+        table = compiled;
+        log.info("Tariff replaced: {} tiers", tiers.size());
+        return compiled.tiers();
+    }
+}
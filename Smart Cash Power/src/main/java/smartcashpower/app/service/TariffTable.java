@@ -0,0 +1,150 @@
+package smartcashpower.app.service;
+
+import smartcashpower.app.dto.TariffTierDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tariff tiers compiled for pricing.
+ * <p>
+ * Tiers of every category are stored back to back in two parallel arrays, sorted by the units at
+ * which they start, and {@code tierStart[c]..tierStart[c + 1]} is the slice of category
+ * {@code c}. Pricing a purchase is a map lookup for the category and a walk over a handful of
+ * array slots, with no allocation. A table is immutable once compiled; new rules mean a new table.
+ */
+public final class TariffTable {
+
+    private final Map<String, Integer> categoryIndex;
+    private final int defaultCategory;
+    private final int[] tierStart;
+    private final float[] fromUnits;
+    private final float[] pricePerUnit;
+
+    private TariffTable(Map<String, Integer> categoryIndex, int defaultCategory, int[] tierStart,
+                        float[] fromUnits, float[] pricePerUnit) {
+        this.categoryIndex = categoryIndex;
+        this.defaultCategory = defaultCategory;
+        this.tierStart = tierStart;
+        this.fromUnits = fromUnits;
+        this.pricePerUnit = pricePerUnit;
+    }
+
+    /**
+     * A single flat price for every category.
+     */
+    public static TariffTable flat(String defaultCategory, float pricePerUnit) {
+        return compile(List.of(new TariffTierDTO(defaultCategory, 0.0f, pricePerUnit)), defaultCategory);
+    }
+
+    /**
+     * Compiles tiers into a table. Meters whose category has no tiers are priced as
+     * {@code defaultCategory}.
+     *
+     * @throws IllegalArgumentException if a tier is incomplete, a price is not positive, a category
+     *                                  has no tier starting at 0 or two tiers start at the same units,
+     *                                  or {@code defaultCategory} has no tiers
+     */
+    public static TariffTable compile(List<TariffTierDTO> tiers, String defaultCategory) {
+        Map<String, List<TariffTierDTO>> byCategory = new TreeMap<>();
+        for (TariffTierDTO tier : tiers) {
+            if (tier.getCategory() == null || tier.getCategory().isBlank()
+                    || tier.getFromUnits() == null || tier.getPricePerUnit() == null) {
+                throw new IllegalArgumentException("Every tier needs a category, fromUnits and pricePerUnit");
+            }
+            if (!(tier.getFromUnits() >= 0) || !(tier.getPricePerUnit() > 0) || tier.getPricePerUnit().isInfinite()) {
+                throw new IllegalArgumentException("Tier " + tier + " must start at 0 or more units and have a positive price");
+            }
+            byCategory.computeIfAbsent(normalize(tier.getCategory()), category -> new ArrayList<>()).add(tier);
+        }
+        String fallback = normalize(defaultCategory);
+        if (!byCategory.containsKey(fallback)) {
+            throw new IllegalArgumentException("The default category " + fallback + " has no tiers");
+        }
+
+        Map<String, Integer> categoryIndex = new HashMap<>();
+        int[] tierStart = new int[byCategory.size() + 1];
+        float[] fromUnits = new float[tiers.size()];
+        float[] pricePerUnit = new float[tiers.size()];
+        int next = 0;
+        for (Map.Entry<String, List<TariffTierDTO>> entry : byCategory.entrySet()) {
+            List<TariffTierDTO> categoryTiers = new ArrayList<>(entry.getValue());
+            categoryTiers.sort(Comparator.comparing(TariffTierDTO::getFromUnits));
+            if (categoryTiers.get(0).getFromUnits() != 0.0f) {
+                throw new IllegalArgumentException("Category " + entry.getKey() + " has no tier starting at 0 units");
+            }
+            int category = categoryIndex.size();
+            categoryIndex.put(entry.getKey(), category);
+            tierStart[category] = next;
+            for (TariffTierDTO tier : categoryTiers) {
+                if (next > tierStart[category] && fromUnits[next - 1] == tier.getFromUnits()) {
+                    throw new IllegalArgumentException("Category " + entry.getKey() + " has two tiers starting at "
+                            + tier.getFromUnits() + " units");
+                }
+                fromUnits[next] = tier.getFromUnits();
+                pricePerUnit[next] = tier.getPricePerUnit();
+                next++;
+            }
+        }
+        tierStart[byCategory.size()] = next;
+        return new TariffTable(Map.copyOf(categoryIndex), categoryIndex.get(fallback), tierStart, fromUnits, pricePerUnit);
+    }
+
+    /**
+     * The units {@code amount} RWF buys for a meter of {@code category} that has already bought
+     * {@code monthlyUnits} units this month. A purchase that crosses into the next tier pays each
+     * tier's price for the units that fall in it.
+     */
+    public float unitsFor(String category, float monthlyUnits, float amount) {
+        Integer index = category == null ? null : categoryIndex.get(category);
+        int c = index != null ? index : defaultCategory;
+        int end = tierStart[c + 1];
+        int tier = tierStart[c];
+        while (tier + 1 < end && fromUnits[tier + 1] <= monthlyUnits) {
+            tier++;
+        }
+        double units = 0.0;
+        double remaining = amount;
+        double bought = monthlyUnits;
+        for (; tier + 1 < end; tier++) {
+            double room = fromUnits[tier + 1] - bought;
+            double cost = room * pricePerUnit[tier];
+            if (remaining <= cost) {
+                break;
+            }
+            units += room;
+            remaining -= cost;
+            bought = fromUnits[tier + 1];
+        }
+        return (float) (units + remaining / pricePerUnit[tier]);
+    }
+
+    /**
+     * Whether {@code category} has tiers of its own.
+     */
+    public boolean hasCategory(String category) {
+        return categoryIndex.containsKey(normalize(category));
+    }
+
+    /**
+     * The tiers, by category and then by starting units.
+     */
+    public List<TariffTierDTO> tiers() {
+        List<TariffTierDTO> tiers = new ArrayList<>(fromUnits.length);
+        new TreeMap<>(categoryIndex).forEach((category, c) -> {
+            for (int tier = tierStart[c]; tier < tierStart[c + 1]; tier++) {
+                tiers.add(new TariffTierDTO(category, fromUnits[tier], pricePerUnit[tier]));
+            }
+        });
+        return tiers;
+    }
+
+    public static String normalize(String category) {
+        return category.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,121 @@
+package smartcashpower.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import smartcashpower.app.dto.TransactionDetailDTO;
+import smartcashpower.app.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the admin transaction report straight to a response stream, one row at a time, so memory
+ * use does not depend on the size of the date range.
+ */
+@Service
+public class TransactionReportExporter {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String CSV_HEADER = "transactionId,userEmail,userFullName,meterNumber,amountPaid,"
+            + "unitsPurchased,transactionDate,status,transactionReference";
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public TransactionReportExporter(TransactionRepository transactionRepository, ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Streams every transaction in the range to {@code out}. Runs its own read-only transaction,
+     * which the PostgreSQL driver needs before it will honour the fetch size instead of buffering
+     * the whole result.
+     */
+    public void export(LocalDateTime startDate, LocalDateTime endDate, Format format, OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<TransactionDetailDTO> rows = transactionRepository.streamDetailsByTransactionDateBetween(startDate, endDate)) {
+                if (format == Format.CSV) {
+                    writeCsv(rows.iterator(), out);
+                } else {
+                    writeNdjson(rows.iterator(), out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeCsv(Iterator<TransactionDetailDTO> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        while (rows.hasNext()) {
+            TransactionDetailDTO row = rows.next();
+            writer.write(String.valueOf(row.getTransactionId()));
+            writer.write(',');
+            writeCsvField(writer, row.getUserEmail());
+            writer.write(',');
+            writeCsvField(writer, row.getUserFullName());
+            writer.write(',');
+            writeCsvField(writer, row.getMeterNumber());
+            writer.write(',');
+            writeCsvField(writer, row.getAmountPaid());
+            writer.write(',');
+            writeCsvField(writer, row.getUnitsPurchased());
+            writer.write(',');
+            writeCsvField(writer, row.getTransactionDate());
+            writer.write(',');
+            writeCsvField(writer, row.getStatus());
+            writer.write(',');
+            writeCsvField(writer, row.getTransactionReference());
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            // Keep spreadsheet apps from evaluating user-supplied names as formulas.
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeNdjson(Iterator<TransactionDetailDTO> rows, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out);
+        while (rows.hasNext()) {
+            buffered.write(objectMapper.writeValueAsBytes(rows.next()));
+            buffered.write('\n');
+        }
+        buffered.flush();
+    }
+}
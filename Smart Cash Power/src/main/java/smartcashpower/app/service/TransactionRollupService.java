@@ -0,0 +1,133 @@
+package smartcashpower.app.service;
+
+import smartcashpower.app.dto.RevenueRollupResponse;
+import smartcashpower.app.dto.RollupBackfillResponse;
+import smartcashpower.app.repository.DailyTransactionRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the daily revenue and units rollups in step with the transactions table and answers the
+ * admin analytics from them.
+ * <p>
+ * Each change to a transaction's status is recorded as a delta in the same database transaction as
+ * the change, after it has been flushed, so the totals plus the pending deltas always equal a
+ * {@code GROUP BY} over the current rows. The {@code record*} methods therefore refuse to run
+ * outside a transaction. Deltas are folded into the totals every {@code rollups.fold-interval-ms}.
+ */
+@Service
+public class TransactionRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionRollupService.class);
+
+    private final DailyTransactionRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int foldBatchSize;
+
+    @Autowired
+    public TransactionRollupService(DailyTransactionRollupRepository rollupRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${rollups.fold-batch-size:10000}") int foldBatchSize) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.foldBatchSize = foldBatchSize;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Integer transactionId) {
+        rollupRepository.addTransactions(List.of(transactionId));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransition(Integer transactionId, String fromStatus) {
+        recordTransitions(List.of(transactionId), fromStatus);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransitions(Collection<Integer> transactionIds, String fromStatus) {
+        if (!transactionIds.isEmpty()) {
+            rollupRepository.moveTransactions(transactionIds, fromStatus);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMeterRemoved(Long meterId) {
+        rollupRepository.removeMeterTransactions(meterId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUserRemoved(Long userId) {
+        rollupRepository.removeUserTransactions(userId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRemoved(Collection<Integer> transactionIds) {
+        if (!transactionIds.isEmpty()) {
+            rollupRepository.removeTransactions(transactionIds);
+        }
+    }
+
+    /**
+     * Folds the pending deltas into the totals. Each batch is one statement, so a rollup row is
+     * locked once per batch rather than once per purchase.
+     */
+    @Scheduled(fixedDelayString = "${rollups.fold-interval-ms:1000}")
+    public void foldDeltas() {
+        int folded;
+        do {
+            folded = transactionTemplate.execute(status -> rollupRepository.foldDeltas(foldBatchSize));
+        } while (folded == foldBatchSize);
+    }
+
+    /**
+     * Recomputes the rollups for every day in {@code [startDate, endDate]} from the transactions
+     * table. Runs one month per database transaction so the rollup tables are only locked against
+     * new deltas for as long as one month takes to aggregate. Pending deltas for the rebuilt days
+     * are dropped, since the rebuild already counts the rows they describe.
+     */
+    public RollupBackfillResponse backfill(LocalDate startDate, LocalDate endDate) {
+        int rows = 0;
+        LocalDate end = endDate.plusDays(1);
+        for (LocalDate chunkStart = startDate; chunkStart.isBefore(end); ) {
+            LocalDate chunkEnd = YearMonth.from(chunkStart).plusMonths(1).atDay(1);
+            if (chunkEnd.isAfter(end)) {
+                chunkEnd = end;
+            }
+            LocalDate from = chunkStart;
+            LocalDate to = chunkEnd;
+            Integer written = transactionTemplate.execute(status -> {
+                rollupRepository.lockForRebuild();
+                rollupRepository.deleteDeltaDays(from, to);
+                rollupRepository.deleteDays(from, to);
+                return rollupRepository.rebuildDays(from.atStartOfDay(), to.atStartOfDay());
+            });
+            rows += written == null ? 0 : written;
+            chunkStart = chunkEnd;
+        }
+        log.info("Rebuilt {} transaction rollup rows for {} to {}", rows, startDate, endDate);
+        return new RollupBackfillResponse(startDate, endDate, rows);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RevenueRollupResponse> getMonthlyTotals(YearMonth from, YearMonth to) {
+        return rollupRepository.findMonthlyTotals(from.atDay(1), to.plusMonths(1).atDay(1));
+    }
+
+    @Transactional(readOnly = true)
+    public List<RevenueRollupResponse> getYearlyTotals(int fromYear, int toYear) {
+        return rollupRepository.findYearlyTotals(LocalDate.of(fromYear, 1, 1), LocalDate.of(toYear + 1, 1, 1));
+    }
+}
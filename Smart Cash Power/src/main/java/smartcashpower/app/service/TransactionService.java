@@ -1,123 +1,211 @@
 package smartcashpower.app.service;
 
+import smartcashpower.app.dto.TransactionHistoryPage;
 import smartcashpower.app.dto.TransactionInitiationRequest;
 import smartcashpower.app.dto.TransactionResponse;
+import smartcashpower.app.dto.PurchaseStatusResponse;
+import smartcashpower.app.exception.ResourceNotFoundException;
 import smartcashpower.app.integration.IntegrationService;
-import smartcashpower.app.integration.MoMoRequest;
-import smartcashpower.app.integration.MoMoResponse;
-import smartcashpower.app.integration.REGUnitLoadRequest;
-import smartcashpower.app.integration.REGUnitLoadResponse;
+import smartcashpower.app.model.IdempotencyKey;
 import smartcashpower.app.model.Meter;
 import smartcashpower.app.model.Payment;
 import smartcashpower.app.model.Transaction;
 import smartcashpower.app.model.User;
+import smartcashpower.app.repository.IdempotencyKeyRepository;
 import smartcashpower.app.repository.MeterRepository;
-import smartcashpower.app.repository.PaymentRepository;
+import smartcashpower.app.repository.TransactionHistoryRepository;
 import smartcashpower.app.repository.TransactionRepository;
 import smartcashpower.app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 public class TransactionService {
 
     private final MeterRepository meterRepository;
     private final TransactionRepository transactionRepository;
-    private final PaymentRepository paymentRepository;
-    private final IntegrationService integrationService;
     private final UserRepository userRepository;
-
-    private static final float RWF_PER_UNIT = 100.0f;
+    private final PurchasePipeline purchasePipeline;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final TransactionRollupService transactionRollupService;
+    private final PurchaseMetrics purchaseMetrics;
+    private final RetryPolicy retryPolicy;
+    private final TariffService tariffService;
+    private final IntegrationService integrationService;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public TransactionService(MeterRepository meterRepository, TransactionRepository transactionRepository,
-                              PaymentRepository paymentRepository, IntegrationService integrationService,
-                              UserRepository userRepository) {
+                              UserRepository userRepository, PurchasePipeline purchasePipeline,
+                              IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionHistoryRepository transactionHistoryRepository,
+                              TransactionRollupService transactionRollupService,
+                              PurchaseMetrics purchaseMetrics, RetryPolicy retryPolicy,
+                              TariffService tariffService, IntegrationService integrationService,
+                              PlatformTransactionManager transactionManager) {
         this.meterRepository = meterRepository;
         this.transactionRepository = transactionRepository;
-        this.paymentRepository = paymentRepository;
-        this.integrationService = integrationService;
         this.userRepository = userRepository;
+        this.purchasePipeline = purchasePipeline;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionHistoryRepository = transactionHistoryRepository;
+        this.transactionRollupService = transactionRollupService;
+        this.purchaseMetrics = purchaseMetrics;
+        this.retryPolicy = retryPolicy;
+        this.tariffService = tariffService;
+        this.integrationService = integrationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public TransactionResponse initiatePurchase(Long userId, TransactionInitiationRequest request) {
+        return initiatePurchase(userId, request, null);
     }
 
-    @Transactional
-    public TransactionResponse initiatePurchase(Integer userId, TransactionInitiationRequest request) {
-        User user = userRepository.findById(userId.longValue())
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+    /**
+     * Accepts a purchase. When an idempotency key is given it is recorded in the same transaction,
+     * so a second commit for the same key fails on the unique constraint instead of charging twice.
+     * <p>
+     * The units are first added to the meter's monthly total in a transaction of their own, which
+     * holds the meter row only for that update; the purchase is then written in a second one. If
+     * that fails the units are taken off the total again.
+     */
+    public TransactionResponse initiatePurchase(Long userId, TransactionInitiationRequest request, String idempotencyKey) {
+        LocalDateTime now = LocalDateTime.now();
+        int period = now.getYear() * 100 + now.getMonthValue();
+        Reservation reservation = transactionTemplate.execute(status -> reserveMonthlyUnits(request, period));
+        try {
+            return transactionTemplate.execute(status -> recordPurchase(userId, request, idempotencyKey, now, reservation));
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> meterRepository.releaseReservedUnits(
+                    reservation.meter().getId(), period, reservation.units()));
+            throw e;
+        }
+    }
+
+    private record Reservation(Meter meter, float units) {
+    }
+
+    /**
+     * Prices the purchase against the meter's monthly total and adds its units to that total. The
+     * total is written only if no concurrent purchase for the meter changed it since it was read;
+     * otherwise it is read and the purchase priced again.
+     */
+    private Reservation reserveMonthlyUnits(TransactionInitiationRequest request, int period) {
         Meter meter = meterRepository.findById(request.getMeterId().longValue())
                 .orElseThrow(() -> new RuntimeException("Meter not found with id: " + request.getMeterId()));
+        int readPeriod = meter.getMonthlyUnitsPeriod();
+        float readUnits = meter.getMonthlyUnits();
+        boolean active = Boolean.TRUE.equals(meter.getActive());
+        while (true) {
+            if (!active) {
+                // Deactivated meters are being deleted; a purchase would only be removed with them.
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Meter " + request.getMeterId() + " is not active");
+            }
+            float monthlyUnits = readPeriod == period ? readUnits : 0.0f;
+            float units = tariffService.unitsFor(meter.getTariffCategory(), monthlyUnits,
+                    request.getAmount().floatValue());
+            if (meterRepository.compareAndSetMonthlyUnits(meter.getId(), readPeriod, readUnits, period,
+                    monthlyUnits + units) == 1) {
+                return new Reservation(meter, units);
+            }
+            MeterRepository.MonthlyUnits current = meterRepository.findMonthlyUnits(meter.getId())
+                    .orElseThrow(() -> new RuntimeException("Meter not found with id: " + request.getMeterId()));
+            readPeriod = current.getPeriod();
+            readUnits = current.getUnits();
+            active = Boolean.TRUE.equals(current.getActive());
+        }
+    }
 
-        float unitsPurchased = request.getAmount().floatValue() / RWF_PER_UNIT;
+    private TransactionResponse recordPurchase(Long userId, TransactionInitiationRequest request, String idempotencyKey,
+                                               LocalDateTime now, Reservation reservation) {
+        // The caller is already authenticated, so a reference is enough to set the foreign key.
+        User user = userRepository.getReferenceById(userId);
         String transactionReference = UUID.randomUUID().toString();
 
+        if (idempotencyKey != null) {
+            idempotencyKeyRepository.saveAndFlush(new IdempotencyKey(userId, idempotencyKey,
+                    PurchaseIdempotencyService.fingerprint(request), transactionReference));
+        }
+
         Transaction transaction = new Transaction();
         transaction.setUser(user);
-        transaction.setMeter(meter);
+        // Only the meter's key is written; the insert takes no lock other purchases wait on.
+        transaction.setMeter(reservation.meter());
         transaction.setAmount(request.getAmount().floatValue());
-        transaction.setUnitsPurchased(unitsPurchased);
-        transaction.setTransactionDate(LocalDateTime.now());
+        transaction.setUnitsPurchased(reservation.units());
+        transaction.setTransactionDate(now);
         transaction.setStatus("PENDING");
         transaction.setTransactionReference(transactionReference);
+        transaction.setNextRetryAt(retryPolicy.pendingStaleAt(transaction.getTransactionDate()));
 
         Payment payment = new Payment();
         payment.setTransaction(transaction);
         payment.setProviderName(request.getMobileMoneyProvider());
+        // Reconciliation finds the payment by provider id even if it is never verified.
+        payment.setRoutedProvider(integrationService.resolveMoMoProvider(request.getMobileMoneyProvider()));
         payment.setPaymentReference("PAY-" + transactionReference);
         payment.setPaymentStatus("PENDING");
         payment.setPaymentDate(LocalDateTime.now());
 
         transaction.setPayment(payment);
-        transactionRepository.save(transaction);
-
-        MoMoRequest moMoRequest = new MoMoRequest();
-        moMoRequest.setPhoneNumber(user.getPhoneNumber());
-        moMoRequest.setAmount(request.getAmount().floatValue());
-        moMoRequest.setTransactionReference(payment.getPaymentReference());
-
-        MoMoResponse moMoResponse = integrationService.verifyMoMoPayment(moMoRequest);
-
-        if (moMoResponse.isSuccessful()) {
-            payment.setPaymentStatus("COMPLETED");
-            payment.setConfirmationCode(UUID.randomUUID().toString()); // Mock confirmation
-            payment.setResponseMessage(moMoResponse.getMessage());
-            paymentRepository.save(payment);
+        transactionRepository.saveAndFlush(transaction);
+        transactionRollupService.recordCreated(transaction.getTransactionId());
 
-            REGUnitLoadRequest regRequest = new REGUnitLoadRequest();
-            regRequest.setMeterNumber(meter.getMeterNumber());
-            regRequest.setUnits(unitsPurchased);
+        // Payment verification and unit loading run on the purchase pipeline once this commits.
+        purchasePipeline.submitAfterCommit(transaction.getTransactionId());
+        purchaseMetrics.recordAccepted(request.getMobileMoneyProvider(), request.getAmount());
+        return new TransactionResponse(transaction);
+    }
 
-            REGUnitLoadResponse regResponse = integrationService.loadUnitsToMeter(regRequest);
+    @Transactional(readOnly = true)
+    public PurchaseStatusResponse getPurchaseStatus(Long userId, String transactionReference) {
+        Transaction transaction = transactionRepository.findByTransactionReference(transactionReference)
+                .filter(tx -> tx.getUser().getId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with reference: " + transactionReference));
+        return new PurchaseStatusResponse(transaction);
+    }
 
-            if (regResponse.isSuccessful()) {
-                meter.setCurrentUnits(meter.getCurrentUnits() + unitsPurchased);
-                meterRepository.save(meter);
-                transaction.setStatus("SUCCESS");
-            } else {
-                transaction.setStatus("REG_FAILED");
+    /**
+     * Returns one page of the user's history, newest first, optionally narrowed to a meter and/or
+     * status. The cursor is opaque to clients; it encodes the date and id of the last row returned.
+     */
+    public TransactionHistoryPage getTransactionHistory(Long userId, Long meterId, String status,
+                                                        String cursor, int limit) {
+        LocalDateTime afterDate = null;
+        Integer afterId = null;
+        if (cursor != null) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                afterDate = LocalDateTime.parse(parts[0]);
+                afterId = Integer.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid history cursor");
             }
-        } else {
-            transaction.setStatus("FAILED");
-            payment.setPaymentStatus("FAILED");
-            payment.setResponseMessage(moMoResponse.getMessage());
-            paymentRepository.save(payment);
         }
 
-        transactionRepository.save(transaction);
-        return new TransactionResponse(transaction);
-    }
-
-    public List<TransactionResponse> getTransactionHistory(Integer userId) {
-        User user = userRepository.findById(userId.longValue())
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        return transactionRepository.findByUserOrderByTransactionDateDesc(user)
-                .stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
+        // Fetch one extra row to learn whether another page exists without a count query.
+        List<TransactionResponse> rows = transactionHistoryRepository.findPage(userId, meterId, status,
+                afterDate, afterId, limit + 1);
+        if (rows.size() <= limit) {
+            return new TransactionHistoryPage(rows, null);
+        }
+        List<TransactionResponse> page = rows.subList(0, limit);
+        TransactionResponse last = page.get(limit - 1);
+        String nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (last.getTransactionDate() + "|" + last.getTransactionId()).getBytes(StandardCharsets.UTF_8));
+        return new TransactionHistoryPage(new ArrayList<>(page), nextCursor);
     }
 }
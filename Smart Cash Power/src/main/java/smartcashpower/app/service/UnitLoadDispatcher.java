@@ -0,0 +1,227 @@
+package smartcashpower.app.service;
+
+import io.micrometer.core.instrument.Timer;
+import smartcashpower.app.integration.IntegrationService;
+import smartcashpower.app.integration.ProviderUnavailableException;
+import smartcashpower.app.integration.REGUnitLoadRequest;
+import smartcashpower.app.integration.REGUnitLoadResponse;
+import smartcashpower.app.model.UnitLoadOutbox;
+import smartcashpower.app.repository.MeterRepository;
+import smartcashpower.app.repository.TransactionRepository;
+import smartcashpower.app.repository.UnitLoadOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
+
+/**
+ * Drains the unit load outbox into REG.
+ * <p>
+ * Entries are claimed in batches with {@code FOR UPDATE SKIP LOCKED}, sent to REG as one bulk
+ * request per batch, and applied in a single short transaction. At most {@code parallelism}
+ * batches are in flight; while all slots are busy the dispatcher stops claiming and the backlog
+ * simply waits in the table. A claim that is never applied (the node died mid-flight) is released
+ * after the claim timeout and dispatched again; the status guard on the transaction keeps the
+ * replay from crediting the meter twice.
+ * <p>
+ * An entry REG refuses is kept as FAILED with its next attempt scheduled by the
+ * {@link RetryPolicy}; {@link PurchaseRetryService} puts it back in the queue when it is due. Once
+ * its attempts are used up it is kept as DEAD and its transaction moves to DEAD_LETTER.
+ */
+@Service
+public class UnitLoadDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitLoadDispatcher.class);
+
+    private final UnitLoadOutboxRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final MeterRepository meterRepository;
+    private final IntegrationService integrationService;
+    private final TransactionRollupService transactionRollupService;
+    private final PurchaseMetrics purchaseMetrics;
+    private final RetryPolicy retryPolicy;
+    private final Timer dispatchTimer;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor unitLoadExecutor;
+    private final int batchSize;
+    private final long claimTimeoutMinutes;
+    private final Semaphore dispatchSlots;
+
+    @Autowired
+    public UnitLoadDispatcher(UnitLoadOutboxRepository outboxRepository,
+                              TransactionRepository transactionRepository,
+                              MeterRepository meterRepository,
+                              IntegrationService integrationService,
+                              TransactionRollupService transactionRollupService,
+                              PurchaseMetrics purchaseMetrics,
+                              RetryPolicy retryPolicy,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("unitLoadExecutor") TaskExecutor unitLoadExecutor,
+                              @Value("${outbox.unit-load.batch-size:100}") int batchSize,
+                              @Value("${outbox.unit-load.parallelism:4}") int parallelism,
+                              @Value("${outbox.unit-load.claim-timeout-minutes:5}") long claimTimeoutMinutes) {
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.meterRepository = meterRepository;
+        this.integrationService = integrationService;
+        this.transactionRollupService = transactionRollupService;
+        this.purchaseMetrics = purchaseMetrics;
+        this.retryPolicy = retryPolicy;
+        this.dispatchTimer = purchaseMetrics.stageTimer("unit_load_dispatch");
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.unitLoadExecutor = unitLoadExecutor;
+        this.batchSize = batchSize;
+        this.claimTimeoutMinutes = claimTimeoutMinutes;
+        this.dispatchSlots = new Semaphore(parallelism);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.unit-load.poll-interval-ms:250}")
+    public void drain() {
+        // While the REG breaker is open a claimed batch would only be handed straight back.
+        while (integrationService.isRegAvailable() && dispatchSlots.tryAcquire()) {
+            List<UnitLoadOutbox> batch;
+            try {
+                batch = claimBatch();
+            } catch (RuntimeException e) {
+                dispatchSlots.release();
+                throw e;
+            }
+            if (batch.isEmpty()) {
+                dispatchSlots.release();
+                return;
+            }
+            try {
+                unitLoadExecutor.execute(() -> {
+                    try {
+                        dispatchTimer.record(() -> dispatch(batch));
+                    } finally {
+                        dispatchSlots.release();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                dispatchSlots.release();
+                releaseClaims(batch);
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.unit-load.claim-sweep-interval-ms:60000}")
+    public void releaseAbandonedClaims() {
+        Integer released = transactionTemplate.execute(status ->
+                outboxRepository.releaseClaimsOlderThan(LocalDateTime.now().minusMinutes(claimTimeoutMinutes)));
+        if (released != null && released > 0) {
+            log.warn("Released {} abandoned unit load claims", released);
+        }
+    }
+
+    private List<UnitLoadOutbox> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            List<UnitLoadOutbox> batch = outboxRepository.lockNextPending(batchSize);
+            LocalDateTime now = LocalDateTime.now();
+            for (UnitLoadOutbox entry : batch) {
+                entry.setStatus("IN_FLIGHT");
+                entry.setClaimedAt(now);
+                entry.setAttempts(entry.getAttempts() + 1);
+            }
+            return batch;
+        });
+    }
+
+    private void dispatch(List<UnitLoadOutbox> batch) {
+        List<REGUnitLoadRequest> requests = new ArrayList<>(batch.size());
+        for (UnitLoadOutbox entry : batch) {
+            REGUnitLoadRequest request = new REGUnitLoadRequest();
+            request.setMeterNumber(entry.getMeterNumber());
+            request.setUnits(entry.getUnits());
+            request.setTransactionReference(entry.getTransactionReference());
+            requests.add(request);
+        }
+
+        List<REGUnitLoadResponse> responses;
+        try {
+            responses = integrationService.loadUnitsToMeters(requests);
+        } catch (ProviderUnavailableException e) {
+            log.warn("REG unavailable ({}), returning a batch of {} unit loads to the outbox", e.getReason(), batch.size());
+            releaseClaims(batch);
+            return;
+        } catch (RuntimeException e) {
+            log.error("REG batch of {} unit loads failed, returning it to the outbox", batch.size(), e);
+            releaseClaims(batch);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> succeeded = new ArrayList<>(batch.size());
+        List<Integer> failed = new ArrayList<>();
+        List<Integer> deadLettered = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> loaded = new ArrayList<>(batch.size());
+            // Batches run in parallel and may share meters; crediting in meter order keeps their row locks from deadlocking.
+            List<Integer> order = IntStream.range(0, batch.size()).boxed()
+                    .sorted(Comparator.comparing(i -> batch.get(i).getMeterId()))
+                    .toList();
+            for (int i : order) {
+                UnitLoadOutbox entry = batch.get(i);
+                if (apply(entry, responses.get(i), now, succeeded, failed, deadLettered)) {
+                    loaded.add(entry.getId());
+                }
+            }
+            outboxRepository.deleteAllByIdInBatch(loaded);
+            List<Integer> finalized = new ArrayList<>(succeeded);
+            finalized.addAll(failed);
+            finalized.addAll(deadLettered);
+            transactionRollupService.recordTransitions(finalized, "PAYMENT_CONFIRMED");
+        });
+        purchaseMetrics.recordFinished("SUCCESS", succeeded.size());
+        purchaseMetrics.recordFinished("DEAD_LETTER", deadLettered.size());
+    }
+
+    private boolean apply(UnitLoadOutbox entry, REGUnitLoadResponse response, LocalDateTime now,
+                          List<Integer> succeeded, List<Integer> failed, List<Integer> deadLettered) {
+        if (response.isSuccessful()) {
+            if (transactionRepository.compareAndSetStatus(entry.getTransactionId(), "PAYMENT_CONFIRMED", "SUCCESS") == 1) {
+                meterRepository.creditUnits(entry.getMeterId(), entry.getUnits(), now);
+                succeeded.add(entry.getTransactionId());
+            }
+            return true;
+        }
+        if (retryPolicy.isExhausted(entry.getAttempts())) {
+            if (transactionRepository.compareAndSetStatus(entry.getTransactionId(), "PAYMENT_CONFIRMED", "DEAD_LETTER") == 1) {
+                deadLettered.add(entry.getTransactionId());
+            }
+            log.warn("Unit load for transaction {} failed {} times, giving up: {}", entry.getTransactionId(),
+                    entry.getAttempts(), response.getMessage());
+            entry.setStatus("DEAD");
+            entry.setNextAttemptAt(null);
+        } else {
+            if (transactionRepository.compareAndSetStatus(entry.getTransactionId(), "PAYMENT_CONFIRMED", "REG_FAILED") == 1) {
+                failed.add(entry.getTransactionId());
+            }
+            entry.setStatus("FAILED");
+            entry.setNextAttemptAt(retryPolicy.nextAttemptAt(entry.getAttempts(), now));
+        }
+        entry.setClaimedAt(null);
+        outboxRepository.save(entry);
+        return false;
+    }
+
+    private void releaseClaims(List<UnitLoadOutbox> batch) {
+        List<Long> ids = batch.stream().map(UnitLoadOutbox::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.releaseClaims(ids));
+    }
+}
@@ -0,0 +1,16 @@
+package smartcashpower.app.service;
+
+/**
+ * Published whenever a change to a user (blocking, deletion, a new password) must invalidate
+ * anything that was cached or issued for them. Tokens issued under an older {@code tokenVersion}
+ * are revoked.
+ */
+public record UserSecurityChangedEvent(Long userId, int tokenVersion) {
+
+    /**
+     * For a user being deleted: every token issued to them is revoked.
+     */
+    public static UserSecurityChangedEvent allTokens(Long userId) {
+        return new UserSecurityChangedEvent(userId, Integer.MAX_VALUE);
+    }
+}
@@ -3,6 +3,7 @@ package smartcashpower.app.service;
 import smartcashpower.app.model.User;
 import smartcashpower.app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -14,11 +15,14 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -80,14 +84,22 @@ public class UserService {
         return userRepository.save(user);
     }
 
-    public void changePassword(Long userId, String currentPassword, String newPassword) {
+    /**
+     * Sets a new password and signs the user out everywhere.
+     *
+     * @return the updated user, whose token version the caller's new tokens must carry
+     */
+    public User changePassword(Long userId, String currentPassword, String newPassword) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
             throw new IllegalArgumentException("Current password is incorrect");
         }
         user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(saved.getId(), saved.getTokenVersion()));
+        return saved;
     }
 
     public void requestPasswordReset(String email) {
@@ -124,6 +136,8 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setPasswordResetRequestedAt(null);
         user.setPasswordResetAllowedUntil(null);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getTokenVersion()));
     }
 }
@@ -0,0 +1,27 @@
+-- Moves primary key generation from IDENTITY columns to pooled sequences (allocation size 50).
+--
+-- Run once against an existing database BEFORE starting a build that uses sequence generation;
+-- on an empty database Hibernate creates the sequences itself. Each sequence is positioned so that
+-- the first block Hibernate reserves starts right after the current maximum id. The old identity
+-- defaults are left in place; they are harmless because Hibernate now always supplies the id.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+SELECT setval('users_seq', COALESCE((SELECT MAX(user_id) FROM users), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS admins_seq INCREMENT BY 50;
+SELECT setval('admins_seq', COALESCE((SELECT MAX(admin_id) FROM admins), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS meters_seq INCREMENT BY 50;
+SELECT setval('meters_seq', COALESCE((SELECT MAX(meter_id) FROM meters), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS transactions_seq INCREMENT BY 50;
+SELECT setval('transactions_seq', COALESCE((SELECT MAX(transaction_id) FROM transactions), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS payments_seq INCREMENT BY 50;
+SELECT setval('payments_seq', COALESCE((SELECT MAX(payment_id) FROM payments), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS unit_load_outbox_seq INCREMENT BY 50;
+SELECT setval('unit_load_outbox_seq', COALESCE((SELECT MAX(outbox_id) FROM unit_load_outbox), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS idempotency_keys_seq INCREMENT BY 50;
+SELECT setval('idempotency_keys_seq', COALESCE((SELECT MAX(id) FROM idempotency_keys), 0) + 50, false);
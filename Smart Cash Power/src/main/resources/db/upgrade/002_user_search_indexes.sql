@@ -0,0 +1,6 @@
+-- Prefix indexes for the admin user search (UserRepository.searchSummaries). Hibernate cannot
+-- declare expression or operator-class indexes, so they are created here.
+-- text_pattern_ops lets LIKE 'prefix%' use the index regardless of the database collation.
+CREATE INDEX IF NOT EXISTS idx_users_email_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_full_name_prefix ON users (lower(full_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_phone_prefix ON users (phone_number text_pattern_ops);
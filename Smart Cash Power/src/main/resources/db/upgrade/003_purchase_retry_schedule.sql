@@ -0,0 +1,6 @@
+-- Schedules the purchases that were already unfinished when automatic retries were introduced
+-- (PurchaseRetryService). Hibernate adds the next_retry_at, retry_attempts and next_attempt_at
+-- columns and their indexes; run this once after the first start of that build.
+-- Rows without a next retry time are never picked up, so both backlogs are made due now.
+UPDATE transactions SET next_retry_at = now() WHERE status = 'PENDING' AND next_retry_at IS NULL;
+UPDATE unit_load_outbox SET next_attempt_at = now() WHERE status = 'FAILED' AND next_attempt_at IS NULL;
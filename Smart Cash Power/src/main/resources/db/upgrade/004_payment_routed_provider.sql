@@ -0,0 +1,16 @@
+-- Records which mobile money provider each existing payment was sent to (payments.routed_provider),
+-- the column settlement reconciliation reads. Hibernate adds the column and its index; run this
+-- once after the first start of that build.
+-- Payments made before routing could only go to the provider the customer picked, so the id is
+-- taken from the provider name, matched as MobileMoneyRouter does. The names are those of the
+-- clients in MobileMoneyClients; extend the list when adding a provider.
+UPDATE payments SET routed_provider = CASE lower(trim(provider_name))
+        WHEN 'mtn momo' THEN 'mtn'
+        WHEN 'mtn' THEN 'mtn'
+        WHEN 'mtn mobile money' THEN 'mtn'
+        WHEN 'airtel money' THEN 'airtel'
+        WHEN 'airtel' THEN 'airtel'
+    END
+WHERE routed_provider IS NULL;
+-- Replaced by idx_payments_routed_provider_date_reference.
+DROP INDEX IF EXISTS idx_payments_provider_date_reference;
@@ -0,0 +1,6 @@
+-- Unique index on transactions.transaction_reference, which status polls and idempotent purchase
+-- replays look transactions up by (TransactionRepository.findByTransactionReference).
+-- Run once against an existing database BEFORE starting a build that declares the index: it is
+-- built without blocking purchases, and Hibernate then finds it instead of building it with a
+-- table lock. CONCURRENTLY cannot run inside a transaction, so run the file with plain psql.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_reference ON transactions (transaction_reference);
@@ -0,0 +1,117 @@
+package smartcashpower.app.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import smartcashpower.app.dto.RevenueRollupResponse;
+import smartcashpower.app.model.Meter;
+import smartcashpower.app.model.Payment;
+import smartcashpower.app.model.Transaction;
+import smartcashpower.app.model.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Rollup deltas count in the analytics as soon as they are written, and folding them into the
+ * totals changes nothing a reader sees.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DailyTransactionRollupRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2023, 7, 3);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DailyTransactionRollupRepository rollupRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Other tests share the database; start from no rollups for the month under test.
+        rollupRepository.foldDeltas(Integer.MAX_VALUE);
+        rollupRepository.deleteDays(DAY.withDayOfMonth(1), DAY.withDayOfMonth(1).plusMonths(1));
+    }
+
+    @Test
+    void pendingDeltasAreReadAndFoldedIntoTheTotals() {
+        Transaction first = purchase(1000f, 10f);
+        Transaction second = purchase(3000f, 25f);
+        rollupRepository.addTransactions(List.of(first.getTransactionId(), second.getTransactionId()));
+        setStatus(second, "SUCCESS");
+        rollupRepository.moveTransactions(List.of(second.getTransactionId()), "PENDING");
+
+        List<RevenueRollupResponse> beforeFold = monthlyTotals();
+        assertThat(rollupRepository.foldDeltas(Integer.MAX_VALUE)).isEqualTo(3);
+        List<RevenueRollupResponse> afterFold = monthlyTotals();
+
+        assertThat(beforeFold)
+                .extracting(RevenueRollupResponse::getStatus, RevenueRollupResponse::getTransactionCount,
+                        RevenueRollupResponse::getAmountTotal, RevenueRollupResponse::getUnitsTotal)
+                .containsExactly(tuple("PENDING", 1L, 1000.0, 10.0), tuple("SUCCESS", 1L, 3000.0, 25.0));
+        assertThat(afterFold).isEqualTo(beforeFold);
+        assertThat(rollupRepository.foldDeltas(Integer.MAX_VALUE)).isZero();
+    }
+
+    private List<RevenueRollupResponse> monthlyTotals() {
+        entityManager.clear();
+        return rollupRepository.findMonthlyTotals(DAY.withDayOfMonth(1), DAY.withDayOfMonth(1).plusMonths(1));
+    }
+
+    private void setStatus(Transaction transaction, String status) {
+        transaction.setStatus(status);
+        entityManager.flush();
+    }
+
+    private Transaction purchase(float amount, float units) {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        User user = new User();
+        user.setEmail("rollup-" + suffix + "@example.com");
+        user.setPassword("not-a-real-hash");
+        user.setPhoneNumber("rollup-" + suffix);
+        user.setFullName("Rollup User");
+        entityManager.persist(user);
+
+        Meter meter = new Meter();
+        meter.setMeterNumber("ROLLUP-" + suffix);
+        meter.setUser(user);
+        entityManager.persist(meter);
+
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setMeter(meter);
+        transaction.setAmount(amount);
+        transaction.setUnitsPurchased(units);
+        transaction.setTransactionDate(LocalDateTime.of(DAY, LocalTime.NOON));
+        transaction.setStatus("PENDING");
+        transaction.setTransactionReference("TXN-ROLLUP-" + suffix);
+        entityManager.persist(transaction);
+
+        Payment payment = new Payment();
+        payment.setTransaction(transaction);
+        payment.setProviderName("MTN MoMo");
+        payment.setPaymentReference("PAY-ROLLUP-" + suffix);
+        payment.setPaymentStatus("PENDING");
+        payment.setPaymentDate(transaction.getTransactionDate());
+        entityManager.persist(payment);
+        entityManager.flush();
+        return transaction;
+    }
+}
@@ -0,0 +1,209 @@
+package smartcashpower.app.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import smartcashpower.app.model.Meter;
+import smartcashpower.app.model.Transaction;
+import smartcashpower.app.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many purchases and meter readings applied to one meter at the same time: every credit, every
+ * reading and every monthly units reservation must land, with nothing lost to interleaving.
+ */
+@DataJpaTest(properties = "spring.datasource.hikari.maximum-pool-size=" + MeterRepositoryConcurrencyTest.THREADS)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MeterRepositoryConcurrencyTest {
+
+    static final int THREADS = 32;
+    private static final int CREDITS = 2_000;
+    private static final int READINGS = 2_000;
+    // Whole numbers well below 2^24, so the real columns hold every intermediate balance exactly.
+    private static final float INITIAL_UNITS = 100_000f;
+    private static final float UNITS_PER_CREDIT = 2f;
+    private static final int RESERVATIONS = 2_000;
+    private static final int PERIOD = 202407;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private MeterRepository meterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCreditsAndReadingsOnOneMeterLoseNothing() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long meterId = transactionTemplate.execute(status -> createMeter());
+
+        // Readings are totals 1..READINGS arriving in any order; stale ones are ignored, so the
+        // meter ends at the highest reading and its balance is debited by exactly that much.
+        List<Runnable> tasks = new ArrayList<>(CREDITS + READINGS);
+        for (int i = 0; i < CREDITS; i++) {
+            tasks.add(() -> meterRepository.creditUnits(meterId, UNITS_PER_CREDIT, LocalDateTime.now()));
+        }
+        for (int i = 1; i <= READINGS; i++) {
+            float usedUnits = i;
+            tasks.add(() -> meterRepository.recordUsage(meterId, usedUnits, LocalDateTime.now()));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>(tasks.size());
+            for (int i = 0; i < CREDITS; i++) {
+                // Interleave credits and readings so both kinds contend for the row throughout.
+                for (Runnable task : List.of(tasks.get(i), tasks.get(CREDITS + i))) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        transactionTemplate.executeWithoutResult(status -> task.run());
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Meter meter = meterRepository.findById(meterId).orElseThrow();
+        assertThat(meter.getUsedUnits()).isEqualTo((float) READINGS);
+        assertThat(meter.getCurrentUnits()).isEqualTo(INITIAL_UNITS + CREDITS * UNITS_PER_CREDIT - READINGS);
+    }
+
+    @Test
+    void concurrentMonthlyUnitsReservationsOnOneMeterLoseNothing() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long meterId = transactionTemplate.execute(status -> createMeter());
+
+        // Each reservation reads the total, adds one unit and retries if another one got in first,
+        // as a purchase does when it picks its tariff tier.
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>(RESERVATIONS);
+            for (int i = 0; i < RESERVATIONS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    transactionTemplate.executeWithoutResult(status -> {
+                        MeterRepository.MonthlyUnits read;
+                        do {
+                            read = meterRepository.findMonthlyUnits(meterId).orElseThrow();
+                        } while (meterRepository.compareAndSetMonthlyUnits(meterId, read.getPeriod(), read.getUnits(),
+                                PERIOD, (read.getPeriod() == PERIOD ? read.getUnits() : 0f) + 1f) != 1);
+                    });
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        MeterRepository.MonthlyUnits total = meterRepository.findMonthlyUnits(meterId).orElseThrow();
+        assertThat(total.getPeriod()).isEqualTo(PERIOD);
+        assertThat(total.getUnits()).isEqualTo((float) RESERVATIONS);
+
+        // A meter being deleted takes no more reservations.
+        transactionTemplate.executeWithoutResult(status -> meterRepository.deactivate(meterId));
+        Integer reserved = transactionTemplate.execute(status ->
+                meterRepository.compareAndSetMonthlyUnits(meterId, PERIOD, (float) RESERVATIONS, PERIOD, RESERVATIONS + 1f));
+        assertThat(reserved).isZero();
+    }
+
+    @Test
+    void reservationDoesNotWaitForAnotherPurchaseStillBeingWritten() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long meterId = transactionTemplate.execute(status -> createMeter());
+        transactionTemplate.execute(status -> meterRepository.compareAndSetMonthlyUnits(meterId, 0, 0f, PERIOD, 1f));
+
+        // The first purchase has reserved its units and holds its transaction row uncommitted.
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> firstPurchase = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                Meter meter = meterRepository.findById(meterId).orElseThrow();
+                Transaction transaction = new Transaction();
+                transaction.setUser(meter.getUser());
+                transaction.setMeter(meter);
+                transaction.setAmount(100f);
+                transaction.setUnitsPurchased(1f);
+                transaction.setTransactionDate(LocalDateTime.now());
+                transaction.setStatus("PENDING");
+                transaction.setTransactionReference("TXN-OPEN-" + System.nanoTime());
+                transactionRepository.saveAndFlush(transaction);
+                written.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            written.await();
+
+            // A second purchase on the same meter reserves its units while the first is still open.
+            Future<Integer> secondReservation = executor.submit(() -> transactionTemplate.execute(status ->
+                    meterRepository.compareAndSetMonthlyUnits(meterId, PERIOD, 1f, PERIOD, 2f)));
+            assertThat(secondReservation.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+
+            finish.countDown();
+            firstPurchase.get();
+        } finally {
+            finish.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private Long createMeter() {
+        User user = new User();
+        user.setEmail("concurrency-" + System.nanoTime() + "@example.com");
+        user.setPassword("not-a-real-hash");
+        user.setPhoneNumber(String.valueOf(System.nanoTime()));
+        user.setFullName("Shared Building");
+        userRepository.save(user);
+
+        Meter meter = new Meter();
+        meter.setMeterNumber("SHARED-" + System.nanoTime());
+        meter.setUser(user);
+        meter.setCurrentUnits(INITIAL_UNITS);
+        // No drain between readings, so the expected balance depends only on credits and readings.
+        meter.setConsumptionRate(0f);
+        return meterRepository.save(meter).getId();
+    }
+}
@@ -0,0 +1,113 @@
+package smartcashpower.app.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import smartcashpower.app.dto.MeterDetailDTO;
+import smartcashpower.app.dto.TransactionDetailDTO;
+import smartcashpower.app.model.Meter;
+import smartcashpower.app.model.Payment;
+import smartcashpower.app.model.Transaction;
+import smartcashpower.app.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The admin reports read every row with one statement, however many rows there are, and never
+ * load the payment of each transaction.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ReportQueryStatementCountTest {
+
+    private static final int ROWS = 25;
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 14, 0, 0);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MeterRepository meterRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            User user = new User();
+            user.setEmail("report-" + i + "-" + System.nanoTime() + "@example.com");
+            user.setPassword("not-a-real-hash");
+            user.setPhoneNumber("report-" + i + "-" + System.nanoTime());
+            user.setFullName("Report User " + i);
+            entityManager.persist(user);
+
+            Meter meter = new Meter();
+            meter.setMeterNumber("REPORT-" + i + "-" + System.nanoTime());
+            meter.setUser(user);
+            entityManager.persist(meter);
+
+            Transaction transaction = new Transaction();
+            transaction.setUser(user);
+            transaction.setMeter(meter);
+            transaction.setAmount(1000f);
+            transaction.setUnitsPurchased(10f);
+            transaction.setTransactionDate(DAY.plusMinutes(i));
+            transaction.setStatus("SUCCESS");
+            transaction.setTransactionReference("TXN-REPORT-" + i + "-" + System.nanoTime());
+            entityManager.persist(transaction);
+
+            Payment payment = new Payment();
+            payment.setTransaction(transaction);
+            payment.setProviderName("MTN MoMo");
+            payment.setPaymentReference("PAY-REPORT-" + i + "-" + System.nanoTime());
+            payment.setPaymentStatus("COMPLETED");
+            payment.setPaymentDate(DAY.plusMinutes(i));
+            entityManager.persist(payment);
+        }
+        // Start from an empty persistence context, so nothing is served from the first-level cache.
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void transactionReportIsOneStatement() {
+        List<TransactionDetailDTO> rows = transactionRepository.findDetailsByTransactionDateBetween(
+                DAY, DAY.plusDays(1));
+
+        assertThat(rows).hasSize(ROWS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityStatistics(Payment.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void meterListingIsOneStatement() {
+        List<MeterDetailDTO> rows = meterRepository.findAllDetails();
+
+        assertThat(rows).hasSizeGreaterThanOrEqualTo(ROWS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
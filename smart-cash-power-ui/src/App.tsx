@@ -48,7 +48,6 @@ import {
   requestPasswordReset,
   checkResetStatus,
   resetPassword,
-  updateMeterUnits,
   updateUserProfile,
 } from './services/apiService';
 import PurchaseScreen from './components/PurchaseScreen';
@@ -74,6 +73,7 @@ export type Meter = {
   currentUnits?: number;
   usedUnits?: number;
   active?: boolean;
+  consumptionRate?: number;
 };
 
 const resolveDestination = (user: AuthUser | null) => {
@@ -88,7 +88,6 @@ const App = () => {
   const [meters, setMeters] = useState<Meter[]>([]);
   const [drainingMeters, setDrainingMeters] = useState<Meter[]>([]);
   const [isLoadingMeters, setIsLoadingMeters] = useState(false);
-  const [zeroedMeters, setZeroedMeters] = useState(new Set<string | number>());
 
   const fetchMeters = useCallback(
     async (userOverride?: AuthUser | null) => {
@@ -131,7 +130,8 @@ const App = () => {
     }
   }, [currentUser, fetchMeters]);
 
-  // Global draining effect
+  // Global draining effect: the backend owns consumption, so this only animates the balance
+  // locally from each meter's consumption rate and never writes back.
   useEffect(() => {
     if (currentUser?.role !== 'USER' || drainingMeters.length === 0) {
       return;
@@ -142,18 +142,13 @@ const App = () => {
         prev.map((m) => {
           if (m.currentUnits === 0) return m; // Already zero, do nothing
 
-          const newUnits = Math.max(0, (m.currentUnits ?? 0) - 0.002);
-          
-          if (newUnits === 0 && m.id && !zeroedMeters.has(m.id)) {
-            const totalUsed = (m.usedUnits ?? 0) + (m.currentUnits ?? 0);
-            updateMeterUnits(m.id, { currentUnits: 0, usedUnits: totalUsed });
-            setZeroedMeters((prevSet) => new Set(prevSet).add(m.id!));
-          }
+          const rate = m.consumptionRate ?? 0.002;
+          const drained = Math.min(m.currentUnits ?? 0, rate);
 
           return {
             ...m,
-            currentUnits: newUnits,
-            usedUnits: (m.usedUnits ?? 0) + 0.002,
+            currentUnits: (m.currentUnits ?? 0) - drained,
+            usedUnits: (m.usedUnits ?? 0) + drained,
           };
         }),
       );
@@ -162,27 +157,9 @@ const App = () => {
     return () => {
       window.clearInterval(intervalId);
     };
-  }, [currentUser, drainingMeters, zeroedMeters]);
+  }, [currentUser, drainingMeters]);
 
   const handleLogout = async () => {
-    // Persist the current state of draining meters before logging out
-    if (drainingMeters.length > 0) {
-      console.log('Saving meter states before logout...');
-      const updatePromises = drainingMeters.map(meter => {
-        if (meter.id) {
-          return updateMeterUnits(meter.id, {
-            currentUnits: meter.currentUnits ?? 0,
-            usedUnits: meter.usedUnits ?? 0,
-          });
-        }
-        return Promise.resolve(); // Should not happen if meters are loaded correctly
-      });
-
-      await Promise.allSettled(updatePromises);
-      console.log('Finished saving meter states.');
-    }
-
-    // Proceed with original logout logic
     logoutUser();
     setCurrentUser(null);
     setMeters([]);
@@ -1536,12 +1513,19 @@ import {
   // ... other imports
   getPendingResets,
   unblockUser,
+  exportAdminTransactions,
+  getAdminUserCount,
   // ... other imports
 } from './services/apiService';
 // ...
 
+const ADMIN_USERS_PAGE_SIZE = 50;
+
 const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
   const [users, setUsers] = useState<any[]>([]);
+  const [usersPage, setUsersPage] = useState(0);
+  const [usersHasNext, setUsersHasNext] = useState(false);
+  const [userCount, setUserCount] = useState(0);
   const [transactions, setTransactions] = useState<any[]>([]);
   const [allMeters, setAllMeters] = useState<any[]>([]);
   const [pendingResets, setPendingResets] = useState<any[]>([]);
@@ -1563,13 +1547,13 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
     setIsLoading(true);
     setError(null);
     try {
-      const [usersData, txData, resetsData, metersData] = await Promise.all([
-        getAdminUsers(),
+      const [countData, txData, resetsData, metersData] = await Promise.all([
+        getAdminUserCount(),
         getAdminTransactions(new Date(0).toISOString(), new Date().toISOString()),
         getPendingResets(),
         getAdminMeters(),
       ]);
-      setUsers(usersData ?? []);
+      setUserCount(countData ?? 0);
       setTransactions(txData ?? []);
       setPendingResets(resetsData ?? []);
       setAllMeters(metersData ?? []);
@@ -1584,16 +1568,23 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
   useEffect(() => {
     loadData();
   }, [loadData]);
+
+  // Users are searched and paged on the server; wait for typing to settle before querying.
+  useEffect(() => {
+    const timer = setTimeout(async () => {
+      try {
+        const page = await getAdminUsers({ page: usersPage, size: ADMIN_USERS_PAGE_SIZE, search: userSearch.trim() });
+        setUsers(page.items);
+        setUsersHasNext(page.hasNext);
+      } catch (e) {
+        console.error(e);
+        toast.error('Failed to load users');
+      }
+    }, 250);
+    return () => clearTimeout(timer);
+  }, [usersPage, userSearch]);
   
   // Memoized filtering
-  const filteredUsers = useMemo(() => {
-    if (!userSearch) return users;
-    return users.filter(u =>
-      u.fullName?.toLowerCase().includes(userSearch.toLowerCase()) ||
-      u.email?.toLowerCase().includes(userSearch.toLowerCase())
-    );
-  }, [users, userSearch]);
-
   const filteredMeters = useMemo(() => {
     if (!meterSearch) return allMeters;
     return allMeters.filter(m =>
@@ -1610,7 +1601,7 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
     );
   }, [transactions, transactionSearch]);
 
-  const activeUsers = users.length;
+  const activeUsers = userCount;
   const metersMonitored = allMeters.length;
   const pendingTickets = transactions.filter((t) => t.status && t.status !== 'SUCCESS' && t.status !== 'COMPLETED').length;
   
@@ -1653,6 +1644,7 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
           await deleteUser(userId);
           toast.success('User deleted successfully');
           setUsers((prev) => prev.filter((u) => u.id !== userId));
+          setUserCount((prev) => Math.max(0, prev - 1));
           handleCancelConfirmation();
         } catch (e) {
           console.error(e);
@@ -1891,9 +1883,9 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
               <Search className="w-5 h-5" style={{ color: 'var(--text-muted)' }} />
               <input
                 type="text"
-                placeholder="Search users by name or email..."
+                placeholder="Search users by name, email or phone..."
                 value={userSearch}
-                onChange={(e) => setUserSearch(e.target.value)}
+                onChange={(e) => { setUserSearch(e.target.value); setUsersPage(0); }}
                 className="flex-1 bg-transparent outline-none"
                 style={{ color: 'var(--text-primary)' }}
               />
@@ -1914,7 +1906,7 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
                     </tr>
                   </thead>
                   <tbody>
-                    {filteredUsers.map((u) => (
+                    {users.map((u) => (
                       <tr key={u.id} className="transition-colors" style={{ borderBottom: '1px solid var(--border-subtle)' }}
                         onMouseEnter={(e) => e.currentTarget.style.background = 'var(--bg-hover)'}
                         onMouseLeave={(e) => e.currentTarget.style.background = 'transparent'}
@@ -1951,6 +1943,26 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
                 </table>
               </div>
             )}
+
+            <div className="flex items-center justify-between">
+              <button
+                onClick={() => setUsersPage((p) => Math.max(0, p - 1))}
+                disabled={usersPage === 0}
+                className="px-4 py-2 rounded-lg text-sm font-medium"
+                style={{ background: 'var(--bg-card)', color: usersPage === 0 ? 'var(--text-muted)' : 'var(--text-secondary)' }}
+              >
+                Previous
+              </button>
+              <span className="text-sm" style={{ color: 'var(--text-muted)' }}>Page {usersPage + 1}</span>
+              <button
+                onClick={() => setUsersPage((p) => p + 1)}
+                disabled={!usersHasNext}
+                className="px-4 py-2 rounded-lg text-sm font-medium"
+                style={{ background: 'var(--bg-card)', color: usersHasNext ? 'var(--text-secondary)' : 'var(--text-muted)' }}
+              >
+                Next
+              </button>
+            </div>
           </div>
         )}
 
@@ -2026,6 +2038,15 @@ const AdminDashboard = ({ currentUser, onLogout }: AdminDashboardProps) => {
                 className="flex-1 bg-transparent outline-none"
                 style={{ color: 'var(--text-primary)' }}
               />
+              <button
+                onClick={() => exportAdminTransactions(new Date(0).toISOString(), new Date().toISOString())
+                  .catch(() => toast.error('Failed to export transactions'))}
+                className="flex items-center gap-2 px-3 py-1 rounded-lg text-sm font-medium"
+                style={{ background: 'var(--bg-elevated)', color: 'var(--text-secondary)' }}
+              >
+                <FileText className="w-4 h-4" />
+                Export CSV
+              </button>
             </div>
 
             {isLoading ? (
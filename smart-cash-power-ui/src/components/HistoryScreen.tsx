@@ -2,20 +2,25 @@ import React, { useState, useEffect } from 'react';
 import { ArrowLeft, Receipt } from 'lucide-react';
 import { getTransactionHistory, type TransactionResponse } from '../services/apiService';
 
+const PAGE_SIZE = 20;
+
 interface HistoryScreenProps {
   onNavigateBack: () => void;
 }
 
 const HistoryScreen: React.FC<HistoryScreenProps> = ({ onNavigateBack }) => {
   const [history, setHistory] = useState<TransactionResponse[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [isLoading, setIsLoading] = useState(true);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
 
   useEffect(() => {
     const fetchHistory = async () => {
       try {
-        const response = await getTransactionHistory();
-        setHistory(response);
+        const page = await getTransactionHistory({ limit: PAGE_SIZE });
+        setHistory(page.items);
+        setNextCursor(page.nextCursor);
       } catch (err) {
         setError('Failed to fetch transaction history.');
         console.error(err);
@@ -26,6 +31,18 @@ const HistoryScreen: React.FC<HistoryScreenProps> = ({ onNavigateBack }) => {
     fetchHistory();
   }, []);
 
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setIsLoadingMore(true);
+    try {
+      const page = await getTransactionHistory({ cursor: nextCursor, limit: PAGE_SIZE });
+      setHistory(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } finally {
+      setIsLoadingMore(false);
+    }
+  };
+
   const getStatusColor = (status: string) => {
     if (status === 'SUCCESS' || status === 'COMPLETED') {
       return { bg: 'var(--green-glow)', color: 'var(--green-primary)' };
@@ -115,6 +132,16 @@ const HistoryScreen: React.FC<HistoryScreenProps> = ({ onNavigateBack }) => {
                   <p style={{ color: 'var(--text-secondary)' }}>No transactions found.</p>
                 </div>
               )}
+              {nextCursor && (
+                <button
+                  onClick={loadMore}
+                  disabled={isLoadingMore}
+                  className="w-full py-3 rounded-xl font-semibold transition-all"
+                  style={{ background: 'var(--bg-elevated)', border: '1px solid var(--border-default)', color: 'var(--text-secondary)' }}
+                >
+                  {isLoadingMore ? 'Loading...' : 'Load more'}
+                </button>
+              )}
             </div>
           )}
         </div>
@@ -1,8 +1,8 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useMemo } from 'react';
 import { useLocation } from 'react-router-dom';
 import { ArrowLeft, CheckCircle, Zap } from 'lucide-react';
 import toast from 'react-hot-toast';
-import { initiatePurchase, type TransactionInitiationRequest, type TransactionResponse } from '../services/apiService';
+import { initiatePurchase, getPurchaseStatus, type TransactionInitiationRequest, type TransactionResponse } from '../services/apiService';
 
 interface PurchaseScreenProps {
   meters: any[];
@@ -21,6 +21,8 @@ const PurchaseScreen: React.FC<PurchaseScreenProps> = ({ meters, onNavigateBack
   const [isLoading, setIsLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const [success, setSuccess] = useState<TransactionResponse | null>(null);
+  // One key per distinct purchase, so resubmitting the same purchase never charges twice.
+  const idempotencyKey = useMemo(() => crypto.randomUUID(), [selectedMeterId, amount, provider]);
 
   useEffect(() => {
     if (preselectedMeter) {
@@ -62,9 +64,22 @@ const PurchaseScreen: React.FC<PurchaseScreenProps> = ({ meters, onNavigateBack
     };
 
     try {
-      const response = await initiatePurchase(request);
-      setSuccess(response);
-      toast.success(`Successfully purchased ${response.unitsPurchased} kWh!`);
+      const accepted = await initiatePurchase(request, idempotencyKey);
+      // The backend accepts the purchase and finishes it asynchronously; poll until it settles.
+      let response = accepted;
+      for (let attempt = 0; attempt < 30 && !response.completed; attempt++) {
+        await new Promise((resolve) => setTimeout(resolve, 1000));
+        response = await getPurchaseStatus(accepted.referenceNumber);
+      }
+      if (response.currentStatus === 'SUCCESS') {
+        setSuccess(response);
+        toast.success(`Successfully purchased ${response.unitsPurchased} kWh!`);
+      } else if (response.completed) {
+        throw new Error(response.paymentMessage || 'Purchase failed. Please try again.');
+      } else {
+        setSuccess(response);
+        toast('Your purchase is still being processed. Check your history shortly.');
+      }
     } catch (err: any) {
       const errorMsg = err.message || 'Purchase failed. Please try again.';
       setError(errorMsg);
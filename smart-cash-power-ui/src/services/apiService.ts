@@ -5,6 +5,7 @@ const api = axios.create({
 });
 
 const AUTH_TOKEN_KEY = 'scp-auth-token';
+const REFRESH_TOKEN_KEY = 'scp-refresh-token';
 
 // 2. setAuthHeader(token)
 const setAuthHeader = (token: string | null) => {
@@ -17,19 +18,60 @@ const setAuthHeader = (token: string | null) => {
   }
 };
 
+const setTokens = (tokens: { token: string; refreshToken: string } | null) => {
+  setAuthHeader(tokens ? tokens.token : null);
+  if (tokens) {
+    localStorage.setItem(REFRESH_TOKEN_KEY, tokens.refreshToken);
+  } else {
+    localStorage.removeItem(REFRESH_TOKEN_KEY);
+  }
+};
+
 // On initial load, try to load the token from local storage
 const storedToken = localStorage.getItem(AUTH_TOKEN_KEY);
 if (storedToken) {
   setAuthHeader(storedToken);
 }
 
-// Automatically handle 401 responses
+// Access tokens are short-lived; concurrent 401s share a single refresh call.
+let refreshInFlight: Promise<string | null> | null = null;
+
+const refreshAccessToken = (): Promise<string | null> => {
+  const refreshToken = localStorage.getItem(REFRESH_TOKEN_KEY);
+  if (!refreshToken) {
+    return Promise.resolve(null);
+  }
+  if (!refreshInFlight) {
+    refreshInFlight = axios
+      .post('/api/v1/auth/refresh', { refreshToken })
+      .then((response) => {
+        setTokens(response.data);
+        return response.data.token as string;
+      })
+      .catch(() => null)
+      .finally(() => {
+        refreshInFlight = null;
+      });
+  }
+  return refreshInFlight;
+};
+
+// Automatically handle 401 responses: refresh once and retry, otherwise sign out
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
+  async (error) => {
+    const original = error.config;
+    if (error.response?.status === 401 && original && !original._retried && original.url !== '/auth/login') {
+      original._retried = true;
+      const token = await refreshAccessToken();
+      if (token) {
+        original.headers['Authorization'] = `Bearer ${token}`;
+        return api(original);
+      }
+    }
     if (error.response?.status === 401) {
       // Clear user data and redirect to login
-      setAuthHeader(null);
+      setTokens(null);
       localStorage.removeItem('user');
       if (typeof window !== 'undefined' && window.location.pathname !== '/login') {
         window.location.href = '/login';
@@ -53,6 +95,8 @@ const handleApiError = (error: any): never => {
 
 export interface LoginResponse {
   token: string;
+  refreshToken: string;
+  expiresIn: number;
   user: {
     userId?: number | string;
     email?: string;
@@ -101,9 +145,9 @@ export const registerUser = async (registrationData: any) => {
 export const loginUser = async (loginData: { email: string; password: string }): Promise<LoginResponse> => {
   try {
     const response = await api.post<LoginResponse>('/auth/login', loginData);
-    const { token, user } = response.data;
+    const { user } = response.data;
     
-    setAuthHeader(token);
+    setTokens(response.data);
     
     if (user) {
       localStorage.setItem('user', JSON.stringify(user));
@@ -119,7 +163,7 @@ export const loginUser = async (loginData: { email: string; password: string }):
 
 // 5. logoutUser()
 export const logoutUser = () => {
-  setAuthHeader(null);
+  setTokens(null);
   localStorage.removeItem('user');
   // Redirect to login page to ensure clean state
   if (typeof window !== 'undefined') {
@@ -157,9 +201,11 @@ export const addMeter = async (meterData: { meterNumber: string }) => {
 };
 
 // 8. initiatePurchase(request)
-export const initiatePurchase = async (request: any): Promise<any> => {
+export const initiatePurchase = async (request: any, idempotencyKey?: string): Promise<any> => {
   try {
-    const response = await api.post('/transactions/purchase', request);
+    const response = await api.post('/transactions/purchase', request, {
+      headers: idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : undefined,
+    });
     return response.data;
   } catch (error: any) {
     console.error('Purchase initiation failed:', error);
@@ -167,25 +213,79 @@ export const initiatePurchase = async (request: any): Promise<any> => {
   }
 };
 
-// 9. getTransactionHistory()
-export const getTransactionHistory = async (): Promise<any[]> => {
+// Polls the purchase pipeline for the outcome of an accepted purchase
+export const getPurchaseStatus = async (referenceNumber: string): Promise<TransactionResponse> => {
   try {
-    const response = await api.get('/transactions/history');
-    return response.data || [];
+    const response = await api.get(`/transactions/${referenceNumber}/status`);
+    return response.data;
+  } catch (error: any) {
+    console.error('Failed to get purchase status:', error);
+    return handleApiError(error);
+  }
+};
+
+export interface TransactionHistoryPage {
+  items: TransactionResponse[];
+  nextCursor: string | null;
+}
+
+export interface TransactionHistoryQuery {
+  cursor?: string | null;
+  limit?: number;
+  meterId?: number;
+  status?: string;
+}
+
+// 9. getTransactionHistory(query)
+export const getTransactionHistory = async (query: TransactionHistoryQuery = {}): Promise<TransactionHistoryPage> => {
+  try {
+    const params = Object.fromEntries(
+      Object.entries(query).filter(([, value]) => value !== undefined && value !== null && value !== ''),
+    );
+    const response = await api.get<TransactionHistoryPage>('/transactions/history', { params });
+    return response.data || { items: [], nextCursor: null };
   } catch (error: any) {
     console.error('Failed to get transaction history:', error);
-    return [];
+    return { items: [], nextCursor: null };
   }
 };
 
 // Admin APIs
-export const getAdminUsers = async () => {
+export interface PageResponse<T> {
+  items: T[];
+  page: number;
+  size: number;
+  hasNext: boolean;
+}
+
+export interface AdminUsersQuery {
+  page?: number;
+  size?: number;
+  search?: string;
+  sort?: 'createdAt' | 'email' | 'fullName';
+  direction?: 'asc' | 'desc';
+}
+
+export const getAdminUsers = async (query: AdminUsersQuery = {}): Promise<PageResponse<any>> => {
   try {
-    const response = await api.get('/admin/users');
-    return response.data || [];
+    const params = Object.fromEntries(
+      Object.entries(query).filter(([, value]) => value !== undefined && value !== ''),
+    );
+    const response = await api.get('/admin/users', { params });
+    return response.data || { items: [], page: 0, size: 0, hasNext: false };
   } catch (error: any) {
     console.error('Failed to load admin users:', error);
-    handleApiError(error);
+    return handleApiError(error);
+  }
+};
+
+export const getAdminUserCount = async (): Promise<number> => {
+  try {
+    const response = await api.get('/admin/users/count');
+    return response.data ?? 0;
+  } catch (error: any) {
+    console.error('Failed to count admin users:', error);
+    return handleApiError(error);
   }
 };
 
@@ -201,6 +301,25 @@ export const getAdminTransactions = async (startIso: string, endIso: string) =>
   }
 };
 
+// Downloads the streamed report export and hands it to the browser as a file.
+export const exportAdminTransactions = async (startIso: string, endIso: string, format: 'csv' | 'ndjson' = 'csv') => {
+  try {
+    const response = await api.get('/admin/reports/transactions/export', {
+      params: { startDate: startIso, endDate: endIso, format },
+      responseType: 'blob',
+    });
+    const url = URL.createObjectURL(response.data);
+    const link = document.createElement('a');
+    link.href = url;
+    link.download = `transactions.${format}`;
+    link.click();
+    URL.revokeObjectURL(url);
+  } catch (error: any) {
+    console.error('Failed to export admin transactions:', error);
+    handleApiError(error);
+  }
+};
+
 export const blockUser = async (userId: number | string) => {
   try {
     await api.post(`/admin/users/${userId}/block`);
@@ -305,7 +424,9 @@ export const resetPassword = async (email: string, newPassword: string) => {
 
 export const changePassword = async (currentPassword: string, newPassword: string) => {
   try {
-    await api.post('/auth/change-password', { currentPassword, newPassword });
+    // Changing the password revokes earlier tokens; the response carries a fresh pair.
+    const response = await api.post('/auth/change-password', { currentPassword, newPassword });
+    setTokens(response.data);
   } catch (error: any) {
     console.error('Failed to change password:', error);
     handleApiError(error);